@@ -0,0 +1,265 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the Grid engine operations on realistic boards.
+ *
+ * - The corpus is made of seeded games played with a corner strategy, so every
+ *   run measures the same boards
+ * - "mid" boards are taken halfway through a game, "late" boards near its end
+ * - Operations that only read the board cycle through Grids loaded once per trial
+ * - Operations that change the board load the next corpus board inside the benchmark,
+ *   so they never run on their own output; subtract the loadState benchmark (and
+ *   slideLeft for completeMove) to get the cost of the operation alone
+ * - No state is set up per invocation, which JMH cannot time for calls this short and
+ *   which the GC profiler would count as allocations of the benchmark
+ *
+ * Run through RunBenchmarks to get the allocation rate next to the throughput.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridBenchmark {
+    private static final int BOARDS = 64;
+    private static final long SEED = 2048L;
+
+    /**
+     * The boards every benchmark draws from, built once per trial
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"4", "6", "8"})
+        public int size;
+
+        @Param({"mid", "late"})
+        public String phase;
+
+        int[][] boards;
+        int[] points;
+
+        @Setup(Level.Trial)
+        public void build() {
+            double fraction = phase.equals("mid") ? 0.5 : 0.9;
+            SplittableRandomSource seeds = new SplittableRandomSource(SEED + size);
+            boards = new int[BOARDS][];
+            points = new int[BOARDS];
+            for (int b = 0; b < BOARDS; b++) {
+                playGame(seeds.split(), fraction, b);
+            }
+        }
+
+        /**
+         * Plays one game to the end and keeps the board found at the given fraction of its length
+         */
+        private void playGame(RandomSource random, double fraction, int slot) {
+            ArrayGrid game = new ArrayGrid(size, size, random);
+            game.addRandom();
+            game.addRandom();
+            List<int[]> history = new ArrayList<>();
+            List<Integer> scores = new ArrayList<>();
+            do {
+                history.add(cellsOf(game));
+                scores.add(game.getPoints());
+            } while (cornerMove(game));
+            int index = Math.min(history.size() - 1, (int) (fraction * history.size()));
+            boards[slot] = history.get(index);
+            points[slot] = scores.get(index);
+        }
+
+        /**
+         * Makes the first legal move out of left, up, right, down, the way people
+         * keep their big tiles in the top left corner
+         *
+         * @return false if no move was possible
+         */
+        private static boolean cornerMove(ArrayGrid game) {
+            for (Direction direction : new Direction[] {Direction.LEFT, Direction.UP, Direction.RIGHT, Direction.DOWN}) {
+                if (game.shift(direction)) {
+                    game.addRandom();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int[] cellsOf(GameEngine game) {
+            int[] cells = new int[game.getWidth() * game.getHeight()];
+            for (int i = 0; i < game.getHeight(); i++) {
+                for (int j = 0; j < game.getWidth(); j++) {
+                    cells[i * game.getWidth() + j] = game.getValue(i, j);
+                }
+            }
+            return cells;
+        }
+    }
+
+    /**
+     * One Grid that the benchmarks load the corpus boards into, one after the other
+     */
+    @State(Scope.Thread)
+    public static class Board {
+        private Corpus corpus;
+        private Grid grid;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void create(Corpus corpus) {
+            this.corpus = corpus;
+            grid = new Grid(corpus.size, corpus.size, new SplittableRandomSource(SEED));
+        }
+
+        /**
+         * @return the grid, holding the next corpus board
+         */
+        Grid load() {
+            grid.loadState(corpus.boards[next], corpus.points[next]);
+            next = (next + 1) % corpus.boards.length;
+            return grid;
+        }
+    }
+
+    /**
+     * A Grid for every corpus board, loaded once per trial, for the operations that only read the board
+     */
+    @State(Scope.Thread)
+    public static class Boards {
+        private Grid[] grids;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void load(Corpus corpus) {
+            grids = loadAll(corpus, false);
+        }
+
+        /**
+         * @return the Grid after the one returned last time
+         */
+        Grid next() {
+            Grid grid = grids[next];
+            next = (next + 1) % grids.length;
+            return grid;
+        }
+    }
+
+    /**
+     * Like Boards, but every Grid has just made a move from its corpus board, so
+     * there are movements and merge flags to look at
+     */
+    @State(Scope.Thread)
+    public static class MovedBoards {
+        private Grid[] grids;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void load(Corpus corpus) {
+            grids = loadAll(corpus, true);
+        }
+
+        /**
+         * @return the Grid after the one returned last time
+         */
+        Grid next() {
+            Grid grid = grids[next];
+            next = (next + 1) % grids.length;
+            return grid;
+        }
+    }
+
+    private static Grid[] loadAll(Corpus corpus, boolean slideLeft) {
+        Grid[] grids = new Grid[corpus.boards.length];
+        for (int b = 0; b < grids.length; b++) {
+            grids[b] = new Grid(corpus.size, corpus.size, new SplittableRandomSource(SEED));
+            grids[b].loadState(corpus.boards[b], corpus.points[b]);
+            if (slideLeft) {
+                grids[b].slideLeft();
+            }
+        }
+        return grids;
+    }
+
+    /**
+     * The baseline of the benchmarks that change the board
+     */
+    @Benchmark
+    public int loadState(Board board) {
+        return board.load().getPoints();
+    }
+
+    @Benchmark
+    public int slideLeft(Board board) {
+        Grid grid = board.load();
+        grid.slideLeft();
+        return grid.getPoints();
+    }
+
+    @Benchmark
+    public int slideRight(Board board) {
+        Grid grid = board.load();
+        grid.slideRight();
+        return grid.getPoints();
+    }
+
+    @Benchmark
+    public int slideUp(Board board) {
+        Grid grid = board.load();
+        grid.slideUp();
+        return grid.getPoints();
+    }
+
+    @Benchmark
+    public int slideDown(Board board) {
+        Grid grid = board.load();
+        grid.slideDown();
+        return grid.getPoints();
+    }
+
+    @Benchmark
+    public int addRandom(Board board) {
+        Grid grid = board.load();
+        grid.addRandom();
+        return grid.getValue(0, 0);
+    }
+
+    @Benchmark
+    public boolean isOver(Boards boards) {
+        return boards.next().isOver();
+    }
+
+    @Benchmark
+    public Object getMovements(MovedBoards boards) {
+        return boards.next().getMovements();
+    }
+
+    @Benchmark
+    public Object copyState(Boards boards) {
+        return boards.next().copyState();
+    }
+
+    /**
+     * Includes loading and sliding the board; subtract slideLeft
+     */
+    @Benchmark
+    public boolean completeMove(Board board) {
+        Grid grid = board.load();
+        grid.slideLeft();
+        grid.completeMove();
+        return grid.isGameWon();
+    }
+}
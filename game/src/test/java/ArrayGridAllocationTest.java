@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that ArrayGrid keeps its promise of not allocating while making moves.
+ *
+ * - Plays warmed-up games on an 8x8 board, starting again from the same board whenever one is over
+ * - Moves once through shift and addRandom and once through the public slide methods
+ * - Counts the bytes the test thread allocated around the move loop with ThreadMXBean
+ */
+
+public class ArrayGridAllocationTest {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MOVES = 100_000;
+
+    @Test
+    public void movesAllocateNothing() {
+        assertEquals(0, allocatedBytes(false), "bytes allocated over " + MOVES + " shifts and spawns");
+    }
+
+    @Test
+    public void slidesAllocateNothing() {
+        assertEquals(0, allocatedBytes(true), "bytes allocated over " + MOVES + " slides");
+    }
+
+    /**
+     * @param slides true to move through slideLeft/Right/Up/Down, false through shift and addRandom
+     * @return the bytes the test thread allocated over one measured run of MOVES moves
+     */
+    private static long allocatedBytes(boolean slides) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        ArrayGrid grid = new ArrayGrid(8, 8, new SplittableRandomSource(2048));
+        grid.addRandom();
+        grid.addRandom();
+        int[] start = grid.toArray();
+        Direction[] directions = Direction.values();
+
+        // the same loop the measurement runs, so it is compiled before it is measured
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            play(grid, start, directions, MOVES, slides);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        play(grid, start, directions, MOVES, slides);
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void play(ArrayGrid grid, int[] start, Direction[] directions, int moves, boolean slides) {
+        for (int i = 0; i < moves; i++) {
+            Direction direction = directions[i & 3];
+            if (slides) {
+                slide(grid, direction);
+                if (grid.isOver()) {
+                    grid.loadState(start, 0);
+                }
+            } else if (grid.shift(direction)) {
+                grid.addRandom();
+            } else if (grid.isOver()) {
+                grid.loadState(start, 0);
+            }
+        }
+    }
+
+    private static void slide(ArrayGrid grid, Direction direction) {
+        switch (direction) {
+            case UP:
+                grid.slideUp();
+                break;
+            case DOWN:
+                grid.slideDown();
+                break;
+            case LEFT:
+                grid.slideLeft();
+                break;
+            default:
+                grid.slideRight();
+                break;
+        }
+    }
+}
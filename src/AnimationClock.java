@@ -0,0 +1,170 @@
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives every animation of the game from one Swing timer.
+ *
+ * - The timer ticks once per FRAME_MILLIS while anything is animating and stops when nothing is
+ * - Each tick sets every active tween from the System.nanoTime() time since it started, so a late
+ *   or dropped tick makes the next frame jump ahead instead of slowing the animation down
+ * - Tweens are started in batches; a batch's callback runs once, on the tick its last tween ends,
+ *   or at once when the batch is finished early
+ *
+ * One tick costs one timer event however many tiles move. Only used on the event dispatch thread.
+ */
+
+public final class AnimationClock {
+    static final int FRAME_MILLIS = 16;
+
+    private static final AnimationClock INSTANCE = new AnimationClock();
+
+    private final Timer timer;
+    private final List<Batch> running = new ArrayList<>();
+    private final List<Batch> finished = new ArrayList<>();
+
+    private AnimationClock() {
+        timer = new Timer(FRAME_MILLIS, e -> tick());
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * @return the clock shared by every window
+     */
+    public static AnimationClock get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Something animated: told how far along it is on every frame
+     */
+    public interface Tween {
+        /**
+         * @param progress 0 at the start, 1 on the last frame
+         */
+        void apply(float progress);
+    }
+
+    /**
+     * Starts a batch of tweens
+     *
+     * @param onComplete run once after the last tween of the batch ends
+     * @return the batch, to add tweens to before calling start
+     */
+    public Batch batch(Runnable onComplete) {
+        return new Batch(onComplete);
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        // a callback may start new batches, so finished ones are collected first
+        for (int i = running.size() - 1; i >= 0; i--) {
+            Batch batch = running.get(i);
+            if (batch.advance(now)) {
+                running.remove(i);
+                finished.add(batch);
+            }
+        }
+        if (running.isEmpty()) {
+            timer.stop();
+        }
+        for (int i = finished.size() - 1; i >= 0; i--) {
+            finished.get(i).onComplete.run();
+        }
+        finished.clear();
+    }
+
+    /**
+     * Tweens that start together and share one callback
+     */
+    public final class Batch {
+        private final Runnable onComplete;
+        private final List<Timed> tweens = new ArrayList<>();
+        private long startedAt;
+        private boolean started;
+
+        private Batch(Runnable onComplete) {
+            this.onComplete = onComplete;
+        }
+
+        /**
+         * Adds a tween that runs for a time, after a delay from the start of the batch
+         *
+         * @return this batch
+         */
+        public Batch add(int delayMillis, int durationMillis, Tween tween) {
+            tweens.add(new Timed(tween, delayMillis * 1_000_000L, Math.max(1, durationMillis) * 1_000_000L));
+            return this;
+        }
+
+        /**
+         * Starts the batch; with no tweens the callback runs at once
+         */
+        public void start() {
+            if (started) {
+                throw new IllegalStateException("batch already started");
+            }
+            started = true;
+            if (tweens.isEmpty()) {
+                onComplete.run();
+                return;
+            }
+            startedAt = System.nanoTime();
+            running.add(this);
+            if (!timer.isRunning()) {
+                timer.start();
+            }
+        }
+
+        /**
+         * Jumps every tween to its end and runs the callback now, if the batch is still running
+         */
+        public void finish() {
+            if (!running.remove(this)) {
+                return;
+            }
+            if (running.isEmpty()) {
+                timer.stop();
+            }
+            for (Timed timed : tweens) {
+                timed.tween.apply(1f);
+            }
+            onComplete.run();
+        }
+
+        /**
+         * Applies every tween that has started
+         *
+         * @return true once every tween has reached its end
+         */
+        private boolean advance(long now) {
+            long elapsed = now - startedAt;
+            boolean done = true;
+            for (Timed timed : tweens) {
+                if (elapsed < timed.delay) {
+                    done = false;
+                    continue;
+                }
+                float progress = Math.min(1f, (elapsed - timed.delay) / (float) timed.duration);
+                timed.tween.apply(progress);
+                done &= progress >= 1f;
+            }
+            return done;
+        }
+    }
+
+    /**
+     * A tween and when it runs, in nanoseconds from the start of its batch
+     */
+    private static final class Timed {
+        final Tween tween;
+        final long delay;
+        final long duration;
+
+        Timed(Tween tween, long delay, long duration) {
+            this.tween = tween;
+            this.delay = delay;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * A game engine that keeps tile values in a flat int[] and never allocates
+ * while making a move.
+ *
+ * - Every row or column is copied into one reusable scratch line, slid, and written
+ *   back cell by cell, so the before/after comparison happens in place instead of
+ *   through snapshots of the whole board
+ * - Spawning counts and picks empty cells without building a list
+ * - Scores merges and spawns tiles exactly like Grid, without Tile objects
+ * - Has no size or tile value limit beyond what an int holds
+ */
+
+public class ArrayGrid implements GameEngine {
+    private final int width;
+    private final int height;
+    private final int[] cells;
+    private final int[] line;
+    private int points;
+    private boolean isGameWon;
+    private final RandomSource random;
+    private int lastSpawn = -1;
+
+    /**
+     * Create a new empty board with the given width and height
+     *
+     * @pre initialWidth > 3 && initialHeight > 3
+     * @param initialWidth
+     * @param initialHeight
+     */
+    public ArrayGrid(int initialWidth, int initialHeight) {
+        this(initialWidth, initialHeight, new SplittableRandomSource());
+    }
+
+    /**
+     * Create a new empty board with the given width and height that spawns
+     * tiles from the given source
+     *
+     * @pre initialWidth > 3 && initialHeight > 3
+     * @param initialWidth
+     * @param initialHeight
+     * @param random where the new tiles' cells and values are drawn from
+     */
+    public ArrayGrid(int initialWidth, int initialHeight, RandomSource random) {
+        assert initialWidth > 3 && initialHeight > 3;
+        this.random = random;
+        width = initialWidth;
+        height = initialHeight;
+        cells = new int[width * height];
+        line = new int[Math.max(width, height)];
+    }
+
+    /**
+     * Create a copy of another engine's board and score
+     *
+     * @param source the engine to copy
+     */
+    public ArrayGrid(GameEngine source) {
+        this(source.getWidth(), source.getHeight());
+        copyFrom(source);
+    }
+
+    /**
+     * Overwrites this board with the board and score of another engine of the same size
+     *
+     * @pre source.getWidth() == getWidth() && source.getHeight() == getHeight()
+     * @param source the engine to copy
+     */
+    public void copyFrom(GameEngine source) {
+        assert source.getWidth() == width && source.getHeight() == height;
+        if (source instanceof ArrayGrid) {
+            System.arraycopy(((ArrayGrid) source).cells, 0, cells, 0, cells.length);
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    cells[i * width + j] = source.getValue(i, j);
+                }
+            }
+        }
+        points = source.getPoints();
+        isGameWon = source.isGameWon();
+    }
+
+    @Override
+    public void loadState(int[] values, int newPoints) {
+        assert values.length == cells.length;
+        System.arraycopy(values, 0, cells, 0, cells.length);
+        points = newPoints;
+        isGameWon = false;
+        for (int value : values) {
+            if (value >= 2048) {
+                isGameWon = true;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the tile values in row-major order
+     */
+    public int[] toArray() {
+        return cells.clone();
+    }
+
+    /**
+     * Puts a tile on the board without drawing anything at random, for
+     * replaying recorded spawns
+     *
+     * @param row   the row of the cell
+     * @param col   the column of the cell
+     * @param value the tile value
+     */
+    void setValue(int row, int col, int value) {
+        cells[row * width + col] = value;
+        if (value >= 2048) {
+            isGameWon = true;
+        }
+    }
+
+    @Override
+    public void slideRight() {
+        lastSpawn = -1;
+        if (slideLines(height, width, width - 1, width, -1)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideLeft() {
+        lastSpawn = -1;
+        if (slideLines(height, width, 0, width, 1)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideUp() {
+        lastSpawn = -1;
+        if (slideLines(width, height, 0, 1, width)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideDown() {
+        lastSpawn = -1;
+        if (slideLines(width, height, (height - 1) * width, 1, -width)) {
+            addRandom();
+        }
+    }
+
+    /**
+     * Slides the board without adding a random tile, for players that want
+     * to spawn tiles from their own random generator.
+     *
+     * @param direction the direction to slide in
+     * @return true if the board changed
+     */
+    public boolean shift(Direction direction) {
+        switch (direction) {
+            case UP:
+                return slideLines(width, height, 0, 1, width);
+            case DOWN:
+                return slideLines(width, height, (height - 1) * width, 1, -width);
+            case LEFT:
+                return slideLines(height, width, 0, width, 1);
+            default:
+                return slideLines(height, width, width - 1, width, -1);
+        }
+    }
+
+    /**
+     * Slides every line of the board towards its first cell.
+     *
+     * @param lines      the number of lines to slide
+     * @param length     the number of cells in each line
+     * @param firstStart the index of the first cell of the first line
+     * @param lineStride the distance between the first cells of two lines
+     * @param step       the distance between two cells of the same line
+     * @return true if any cell changed
+     */
+    private boolean slideLines(int lines, int length, int firstStart, int lineStride, int step) {
+        boolean changed = false;
+        for (int l = 0; l < lines; l++) {
+            int start = firstStart + l * lineStride;
+            int target = 0;
+            int last = 0;
+            for (int k = 0; k < length; k++) {
+                int value = cells[start + k * step];
+                if (value == 0) {
+                    continue;
+                }
+                if (value == last) {
+                    int merged = value * 2;
+                    line[target - 1] = merged;
+                    points += merged;
+                    if (merged >= 2048) {
+                        isGameWon = true;
+                    }
+                    last = 0;
+                } else {
+                    line[target++] = value;
+                    last = value;
+                }
+            }
+            for (int k = 0; k < length; k++) {
+                int value = k < target ? line[k] : 0;
+                int index = start + k * step;
+                if (cells[index] != value) {
+                    cells[index] = value;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Picks a random empty cell in row-major order and makes it a 2 or a 4,
+     * using the same random draws as Grid.addRandom
+     */
+    @Override
+    public void addRandom() {
+        addRandom(random);
+    }
+
+    /**
+     * Same as addRandom, but draws from the given source instead of this board's own
+     *
+     * @param random the source to draw the cell and the value from
+     */
+    public void addRandom(RandomSource random) {
+        int count = 0;
+        for (int index = 0; index < cells.length; index++) {
+            if (cells[index] == 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        int randInt = random.nextInt(count);
+        for (int index = 0; index < cells.length; index++) {
+            if (cells[index] == 0 && randInt-- == 0) {
+                cells[index] = random.nextDouble() > 0.8 ? 4 : 2;
+                lastSpawn = index;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isOver() {
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = cells[i * width + j];
+                if (value == 0) {
+                    return false;
+                } else if (j + 1 < width && value == cells[i * width + j + 1]) {
+                    return false;
+                } else if (i + 1 < height && value == cells[(i + 1) * width + j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isGameWon() {
+        return isGameWon;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getLastSpawn() {
+        return lastSpawn;
+    }
+
+    @Override
+    public RandomSource getRandomSource() {
+        return random;
+    }
+
+    @Override
+    public int getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getValue(int row, int col) {
+        return cells[row * width + col];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = getValue(i, j);
+                string.append(value == 0 ? "x" : String.valueOf(value)).append(" | ");
+            }
+            string.append("\n");
+        }
+        return string.toString();
+    }
+}
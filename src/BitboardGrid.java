@@ -0,0 +1,215 @@
+/**
+ * A 4x4 game engine that keeps the whole board in one long.
+ *
+ * - Rows and columns slide through the lookup tables in Bitboards
+ * - Scores merges and spawns tiles exactly like Grid, but without Tile objects,
+ *   so it has no ids, movements or merge animations to offer the GUI
+ * - Meant for headless play where millions of moves are made
+ */
+
+public class BitboardGrid implements GameEngine {
+    private long board;
+    private int points;
+    private boolean isGameWon;
+    private final RandomSource random;
+    private int lastSpawn = -1;
+
+    /**
+     * Create a new empty 4x4 board
+     */
+    public BitboardGrid() {
+        this(new SplittableRandomSource());
+    }
+
+    /**
+     * Create a new empty 4x4 board that spawns tiles from the given source
+     *
+     * @param random where the new tiles' cells and values are drawn from
+     */
+    public BitboardGrid(RandomSource random) {
+        this(0L, 0, random);
+    }
+
+    /**
+     * Create a board from an already packed state
+     *
+     * @param board  the packed board, see Bitboards for the layout
+     * @param points the points already scored
+     */
+    public BitboardGrid(long board, int points) {
+        this(board, points, new SplittableRandomSource());
+    }
+
+    /**
+     * Create a board from an already packed state that spawns tiles from the given source
+     *
+     * @param board  the packed board, see Bitboards for the layout
+     * @param points the points already scored
+     * @param random where the new tiles' cells and values are drawn from
+     */
+    public BitboardGrid(long board, int points, RandomSource random) {
+        this.board = board;
+        this.points = points;
+        this.random = random;
+        isGameWon = Bitboards.maxExponent(board) >= 11;
+    }
+
+    @Override
+    public void loadState(int[] values, int newPoints) {
+        assert values.length == Bitboards.SIZE * Bitboards.SIZE;
+        board = 0L;
+        for (int index = 0; index < values.length; index++) {
+            if (values[index] != 0) {
+                board |= (long) Integer.numberOfTrailingZeros(values[index]) << (4 * index);
+            }
+        }
+        points = newPoints;
+        isGameWon = Bitboards.maxExponent(board) >= 11;
+    }
+
+    @Override
+    public void slideRight() {
+        move(Direction.RIGHT);
+    }
+
+    @Override
+    public void slideLeft() {
+        move(Direction.LEFT);
+    }
+
+    @Override
+    public void slideUp() {
+        move(Direction.UP);
+    }
+
+    @Override
+    public void slideDown() {
+        move(Direction.DOWN);
+    }
+
+    @Override
+    public void slide(Direction direction) {
+        move(direction);
+    }
+
+    private void move(Direction direction) {
+        lastSpawn = -1;
+        long moved = Bitboards.move(board, direction);
+        if (moved != board) {
+            points += Bitboards.score(board, direction);
+            board = moved;
+            addRandom();
+        }
+    }
+
+    /**
+     * Picks a random empty cell in row-major order and makes it a 2 or a 4,
+     * using the same random draws as Grid.addRandom
+     */
+    @Override
+    public void addRandom() {
+        if (Bitboards.maxExponent(board) >= 11) {
+            isGameWon = true;
+        }
+        long empty = Bitboards.emptyCells(board);
+        int count = Long.bitCount(empty);
+        if (count == 0) {
+            return;
+        }
+        int randInt = random.nextInt(count);
+        for (int i = 0; i < randInt; i++) {
+            empty &= empty - 1;
+        }
+        int shift = Long.numberOfTrailingZeros(empty);
+        long exponent = random.nextDouble() > 0.8 ? 2 : 1;
+        board |= exponent << shift;
+        lastSpawn = shift / 4;
+    }
+
+    @Override
+    public int getLegalMoves() {
+        int moves = 0;
+        for (int d = 0; d < 4; d++) {
+            Direction direction = Direction.fromOrdinal(d);
+            if (Bitboards.move(board, direction) != board) {
+                moves |= direction.mask();
+            }
+        }
+        return moves;
+    }
+
+    @Override
+    public MovePreview preview(Direction direction) {
+        long moved = Bitboards.move(board, direction);
+        int[] cells = new int[Bitboards.SIZE * Bitboards.SIZE];
+        for (int index = 0; index < cells.length; index++) {
+            int exponent = (int) ((moved >>> (4 * index)) & 0xF);
+            cells[index] = exponent == 0 ? 0 : 1 << exponent;
+        }
+        return new MovePreview(direction, moved != board, Bitboards.score(board, direction),
+                Bitboards.SIZE, Bitboards.SIZE, cells);
+    }
+
+    @Override
+    public boolean isOver() {
+        return Bitboards.countEmpty(board) == 0
+                && Bitboards.moveLeft(board) == board
+                && Bitboards.moveUp(board) == board;
+    }
+
+    @Override
+    public boolean isGameWon() {
+        return isGameWon;
+    }
+
+    @Override
+    public int getWidth() {
+        return Bitboards.SIZE;
+    }
+
+    @Override
+    public int getHeight() {
+        return Bitboards.SIZE;
+    }
+
+    @Override
+    public int getLastSpawn() {
+        return lastSpawn;
+    }
+
+    @Override
+    public RandomSource getRandomSource() {
+        return random;
+    }
+
+    @Override
+    public int getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getValue(int row, int col) {
+        int exponent = Bitboards.exponentAt(board, row, col);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    /**
+     * @return the packed board, see Bitboards for the layout
+     */
+    public long getBoard() {
+        return board;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < Bitboards.SIZE; i++) {
+            for (int j = 0; j < Bitboards.SIZE; j++) {
+                int value = getValue(i, j);
+                string.append(value == 0 ? "x" : String.valueOf(value)).append(" | ");
+            }
+            string.append("\n");
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Static move tables and bit tricks for a 4x4 board packed into a single long.
+ *
+ * Layout:
+ * - Each cell is a 4-bit exponent, 0 for empty, n for the tile 2^n
+ * - Cell (row, col) lives at bit 16 * row + 4 * col, so rows are 16-bit chunks
+ *   and the lowest nibble of a row is its left-most cell
+ * - Exponent 15 (32768) is the largest tile that fits; two of them are never merged
+ *
+ * Rows are slid with 65536-entry lookup tables, columns by transposing first.
+ */
+
+public final class Bitboards {
+    public static final int SIZE = 4;
+    public static final int MAX_EXPONENT = 15;
+
+    private static final long ROW_MASK = 0xFFFFL;
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+    private static final char[] ROW_LEFT = new char[65536];
+    private static final char[] ROW_RIGHT = new char[65536];
+    // Sliding a row left or right pairs up the same number of equal tiles, so one score table serves both
+    private static final int[] ROW_SCORE = new int[65536];
+
+    static {
+        int[] cells = new int[SIZE];
+        for (int row = 0; row < 65536; row++) {
+            for (int k = 0; k < SIZE; k++) {
+                cells[k] = (row >>> (4 * k)) & 0xF;
+            }
+            int score = slideCellsLeft(cells, MAX_EXPONENT);
+            int result = 0;
+            for (int k = 0; k < SIZE; k++) {
+                result |= cells[k] << (4 * k);
+            }
+            ROW_LEFT[row] = (char) result;
+            ROW_SCORE[row] = score;
+            ROW_RIGHT[reverseRow(row)] = (char) reverseRow(result);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Slides an array of exponents towards index 0 in place, merging equal
+     * neighbours once per move the same way Grid.slideHelper does.
+     *
+     * @param cells       the exponents of one row or column
+     * @param maxExponent the largest exponent the caller can store, never merged further
+     * @return the points scored by the merges
+     */
+    static int slideCellsLeft(int[] cells, int maxExponent) {
+        int score = 0;
+        int target = 0;
+        int last = 0;
+        for (int k = 0; k < cells.length; k++) {
+            int exponent = cells[k];
+            if (exponent == 0) {
+                continue;
+            }
+            if (exponent == last && exponent < maxExponent) {
+                cells[target - 1] = exponent + 1;
+                score += 1 << (exponent + 1);
+                last = 0;
+            } else {
+                cells[target++] = exponent;
+                last = exponent;
+            }
+        }
+        while (target < cells.length) {
+            cells[target++] = 0;
+        }
+        return score;
+    }
+
+    private static int reverseRow(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4) | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+
+    /**
+     * Swaps rows and columns of a packed board.
+     *
+     * @param board a packed board
+     * @return the transposed board
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    public static long moveLeft(long board) {
+        return applyRows(board, ROW_LEFT);
+    }
+
+    public static long moveRight(long board) {
+        return applyRows(board, ROW_RIGHT);
+    }
+
+    public static long moveUp(long board) {
+        return transpose(applyRows(transpose(board), ROW_LEFT));
+    }
+
+    public static long moveDown(long board) {
+        return transpose(applyRows(transpose(board), ROW_RIGHT));
+    }
+
+    /**
+     * Applies a move without spawning a tile.
+     *
+     * @param board     a packed board
+     * @param direction the direction to slide in
+     * @return the board after the slide
+     */
+    public static long move(long board, Direction direction) {
+        switch (direction) {
+            case UP:
+                return moveUp(board);
+            case DOWN:
+                return moveDown(board);
+            case LEFT:
+                return moveLeft(board);
+            default:
+                return moveRight(board);
+        }
+    }
+
+    /**
+     * @param board     a packed board before a move
+     * @param direction the direction of the move
+     * @return the points the move scores
+     */
+    public static int score(long board, Direction direction) {
+        if (direction == Direction.UP || direction == Direction.DOWN) {
+            return rowScore(transpose(board));
+        }
+        return rowScore(board);
+    }
+
+    private static long applyRows(long board, char[] table) {
+        return (long) table[(int) (board & ROW_MASK)]
+                | (long) table[(int) ((board >>> 16) & ROW_MASK)] << 16
+                | (long) table[(int) ((board >>> 32) & ROW_MASK)] << 32
+                | (long) table[(int) ((board >>> 48) & ROW_MASK)] << 48;
+    }
+
+    private static int rowScore(long board) {
+        return ROW_SCORE[(int) (board & ROW_MASK)]
+                + ROW_SCORE[(int) ((board >>> 16) & ROW_MASK)]
+                + ROW_SCORE[(int) ((board >>> 32) & ROW_MASK)]
+                + ROW_SCORE[(int) ((board >>> 48) & ROW_MASK)];
+    }
+
+    /**
+     * @param board a packed board
+     * @return a mask with the lowest bit of every empty nibble set
+     */
+    public static long emptyCells(long board) {
+        long x = board | (board >>> 1);
+        x |= x >>> 2;
+        return ~x & NIBBLE_LOW_BITS;
+    }
+
+    public static int countEmpty(long board) {
+        return Long.bitCount(emptyCells(board));
+    }
+
+    /**
+     * @param board a packed board
+     * @return the largest exponent on the board
+     */
+    public static int maxExponent(long board) {
+        int max = 0;
+        for (int shift = 0; shift < 64; shift += 4) {
+            max = Math.max(max, (int) ((board >>> shift) & 0xF));
+        }
+        return max;
+    }
+
+    /**
+     * @param board a packed board
+     * @param row   the row of the cell
+     * @param col   the column of the cell
+     * @return the exponent stored at the cell
+     */
+    public static int exponentAt(long board, int row, int col) {
+        return (int) ((board >>> (16 * row + 4 * col)) & 0xF);
+    }
+}
@@ -0,0 +1,143 @@
+import javax.swing.JComponent;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.util.List;
+
+/**
+ * Paints the whole board on one component from cached images.
+ *
+ * - A frame is the cached background and one TileSprites image per tile, so painting
+ *   allocates nothing and there are no tile components to lay out
+ * - Between moves the tiles come from a copy of the board's values, in which show only
+ *   refreshes the cells a snapshot lists as changed
+ * - A move is one AnimationClock batch of two tweens for the whole board: the tiles slide,
+ *   then merged tiles pulse, as TileGUI does
+ */
+
+public class BoardCanvas extends JComponent implements BoardView {
+    private static final long serialVersionUID = 1L;
+    private static final float MIN_SCALE = 0.8f;
+    private static final float MAX_SCALE = 1.1f;
+
+    private final int width;
+    private final int height;
+    private int tileSize = 120;
+    // the tile values last drawn, row by row, to show the tiles as they were while they slide
+    private final int[] shown;
+
+    // the move being animated, null between moves
+    private Movement[] moving;
+    private int[] movingValues;
+    private boolean[] merging;
+    private float slid;
+    private float pulse;
+    private AnimationClock.Batch animation;
+
+    public BoardCanvas(int width, int height) {
+        this.width = width;
+        this.height = height;
+        shown = new int[width * height];
+        setOpaque(true);
+        setPreferredSize(new Dimension(width * tileSize, height * tileSize));
+    }
+
+    @Override
+    public void show(BoardSnapshot snapshot) {
+        for (int k = 0; k < snapshot.getChangedCellCount(); k++) {
+            int cell = snapshot.getChangedCell(k);
+            shown[cell] = snapshot.getValue(cell / width, cell % width);
+        }
+        repaint();
+    }
+
+    @Override
+    public void animate(BoardSnapshot snapshot, Runnable onComplete) {
+        List<Movement> movements = snapshot.getMove().getMovements();
+        boolean[] mergedCells = new boolean[width * height];
+        for (GridPosition merge : snapshot.getMove().getMerges()) {
+            mergedCells[merge.row * width + merge.col] = true;
+        }
+        moving = movements.toArray(new Movement[0]);
+        movingValues = new int[moving.length];
+        merging = new boolean[moving.length];
+        for (int k = 0; k < moving.length; k++) {
+            Movement movement = moving[k];
+            movingValues[k] = shown[movement.oldPos.row * width + movement.oldPos.col];
+            merging[k] = mergedCells[movement.newPos.row * width + movement.newPos.col];
+        }
+        slid = 0;
+        pulse = 0;
+        animation = AnimationClock.get().batch(() -> {
+            animation = null;
+            moving = null;
+            show(snapshot);
+            onComplete.run();
+        });
+        animation.add(0, SLIDE_MILLIS, progress -> {
+            slid = progress;
+            repaint();
+        });
+        animation.add(SLIDE_MILLIS, MERGE_MILLIS, progress -> {
+            pulse = progress;
+            repaint();
+        });
+        animation.start();
+    }
+
+    @Override
+    public void finishAnimation() {
+        if (animation != null) {
+            animation.finish();
+        }
+    }
+
+    @Override
+    public JComponent getComponent() {
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        double scale = ((Graphics2D) g).getTransform().getScaleX();
+        g.drawImage(TileSprites.background(width, height, tileSize, scale),
+                0, 0, width * tileSize, height * tileSize, null);
+
+        if (moving == null) {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    int value = shown[i * width + j];
+                    if (value != 0) {
+                        drawTile(g, value, j * tileSize, i * tileSize, 1f, scale);
+                    }
+                }
+            }
+            return;
+        }
+
+        float pulseScale = pulse < 0.5f ? MIN_SCALE + (MAX_SCALE - MIN_SCALE) * pulse * 2
+                : MAX_SCALE - (MAX_SCALE - MIN_SCALE) * (pulse - 0.5f) * 2;
+        for (int k = 0; k < moving.length; k++) {
+            Movement movement = moving[k];
+            int x = Math.round((movement.oldPos.col + (movement.newPos.col - movement.oldPos.col) * slid) * tileSize);
+            int y = Math.round((movement.oldPos.row + (movement.newPos.row - movement.oldPos.row) * slid) * tileSize);
+            if (pulse > 0 && merging[k]) {
+                drawTile(g, movement.value, x, y, pulseScale, scale);
+            } else {
+                drawTile(g, movingValues[k], x, y, 1f, scale);
+            }
+        }
+    }
+
+    /**
+     * Blits a tile's sprite into the cell whose corner is at x, y
+     *
+     * @param size how much larger than normal to draw the tile, 1 for normal
+     */
+    private void drawTile(Graphics g, int value, int x, int y, float size, double scale) {
+        int side = tileSize - 2 * TileSprites.TILE_PADDING;
+        int scaled = Math.round(side * size);
+        int offset = (tileSize - scaled) / 2;
+        g.drawImage(TileSprites.tile(value, side, scale), x + offset, y + offset, scaled, scaled, null);
+    }
+}
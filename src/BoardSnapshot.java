@@ -0,0 +1,134 @@
+/**
+ * A copy of a game at one moment, made by the GameLoop after every command that changed the board.
+ *
+ * - The tile values and tile ids of every cell, the points, and whether moves, undo and redo are possible
+ * - The cells that changed since the snapshot before, so a view only redraws those; the first
+ *   snapshot of a game lists every cell
+ * - The MoveEvent of the move that led here, or null after undo, redo or a new game,
+ *   which views draw without animating
+ *
+ * Immutable, so it can be handed from the game loop to the event dispatch thread.
+ */
+
+public final class BoardSnapshot {
+    private final int width;
+    private final int height;
+    private final int[] values;
+    private final int[] ids;
+    private final int[] changedCells;
+    private final int points;
+    private final int legalMoves;
+    private final boolean canUndo;
+    private final boolean canRedo;
+    private final boolean over;
+    private final MoveEvent move;
+
+    private BoardSnapshot(Controller game, int[] changedCells, MoveEvent move) {
+        width = game.getWidth();
+        height = game.getHeight();
+        values = new int[width * height];
+        ids = new int[width * height];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                Tile tile = game.getTile(i, j);
+                values[i * width + j] = tile.getValue();
+                ids[i * width + j] = tile.getValue() == 0 ? -1 : tile.getId();
+            }
+        }
+        this.changedCells = changedCells;
+        points = game.getPoints();
+        legalMoves = game.getLegalMoves();
+        canUndo = game.canUndo();
+        canRedo = game.canRedo();
+        over = game.isOver();
+        this.move = move;
+    }
+
+    /**
+     * Copies a game; called on the thread that owns it
+     *
+     * @param game         the game, which must use the Grid engine
+     * @param changedCells the cells changed since the last snapshot, row * width + col, not copied
+     * @param move         the move that led here, or null
+     * @return the snapshot
+     */
+    static BoardSnapshot of(Controller game, int[] changedCells, MoveEvent move) {
+        return new BoardSnapshot(game, changedCells, move);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the tile value at the cell, 0 if the cell is empty
+     */
+    public int getValue(int row, int col) {
+        return values[row * width + col];
+    }
+
+    /**
+     * @return the id of the tile at the cell, -1 if the cell is empty
+     */
+    public int getTileId(int row, int col) {
+        return ids[row * width + col];
+    }
+
+    /**
+     * @return the number of cells that changed since the snapshot before
+     */
+    public int getChangedCellCount() {
+        return changedCells.length;
+    }
+
+    /**
+     * @param k which changed cell, from 0 to getChangedCellCount() - 1
+     * @return the index of the cell, row * width + col
+     */
+    public int getChangedCell(int k) {
+        return changedCells[k];
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return a mask of Direction.mask() bits for the moves that would change the board
+     */
+    public int getLegalMoves() {
+        return legalMoves;
+    }
+
+    public boolean canUndo() {
+        return canUndo;
+    }
+
+    public boolean canRedo() {
+        return canRedo;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * @return the move that led to this board, or null if it was restored or is a new game
+     */
+    public MoveEvent getMove() {
+        return move;
+    }
+
+    /**
+     * @return a new engine holding this board and score, for the AI players to search
+     */
+    public GameEngine toEngine() {
+        ArrayGrid engine = new ArrayGrid(width, height);
+        engine.loadState(values.clone(), points);
+        return engine;
+    }
+}
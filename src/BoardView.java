@@ -0,0 +1,58 @@
+import javax.swing.JComponent;
+
+/**
+ * Something that draws the BoardSnapshots of a game and animates its moves.
+ *
+ * - GridGUI draws every tile as its own TileGUI component
+ * - BoardCanvas paints the whole board on one component from cached sprites
+ *
+ * create picks BoardCanvas unless the game is started with -Dboard.renderer=components.
+ * All methods are called on the event dispatch thread.
+ */
+
+public interface BoardView {
+    String RENDERER_PROPERTY = "board.renderer";
+    /** How long tiles take to slide to their new cells */
+    int SLIDE_MILLIS = 60;
+    /** How long a merged tile pulses after sliding */
+    int MERGE_MILLIS = 60;
+
+    /**
+     * Makes the view named by the board.renderer system property
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @return a GridGUI if the property is "components", otherwise a BoardCanvas
+     */
+    static BoardView create(int width, int height) {
+        if ("components".equals(System.getProperty(RENDERER_PROPERTY))) {
+            return new GridGUI(width, height);
+        }
+        return new BoardCanvas(width, height);
+    }
+
+    /**
+     * Draws a snapshot without animating, redrawing only the cells it lists as changed
+     *
+     * @param snapshot the snapshot after the one shown now
+     */
+    void show(BoardSnapshot snapshot);
+
+    /**
+     * Animates the move that led to a snapshot from the board shown now, then shows the snapshot
+     *
+     * @param snapshot   the snapshot after the one shown now, with a move
+     * @param onComplete run on the event dispatch thread after the animation
+     */
+    void animate(BoardSnapshot snapshot, Runnable onComplete);
+
+    /**
+     * Jumps a running animation to its end and runs its onComplete now; does nothing if none is running
+     */
+    void finishAnimation();
+
+    /**
+     * @return the component to add to a window
+     */
+    JComponent getComponent();
+}
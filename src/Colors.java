@@ -0,0 +1,46 @@
+import java.awt.Color;
+
+/**
+ * The colors of the board, created once and shared by every renderer.
+ *
+ * - forValue looks a tile's color up instead of allocating a Color on every paint
+ * - Values past 2048 all share one dark color
+ */
+
+public final class Colors {
+    public static final Color BOARD = new Color(0xBBADA0);
+    public static final Color EMPTY_CELL = new Color(0xCDC1B4);
+    public static final Color TILE_TEXT = new Color(0x333333);
+    public static final Color MERGE_HIGHLIGHT = new Color(0xFFD700);
+    private static final Color BEYOND_2048 = new Color(0x3C3A32);
+    // indexed by log2 of the value, so TILES[1] is the color of a 2
+    private static final Color[] TILES = {
+            BEYOND_2048,
+            new Color(0xEEE4DA),
+            new Color(0xEDE0C8),
+            new Color(0xF2B179),
+            new Color(0xF59563),
+            new Color(0xF67C5F),
+            new Color(0xF65E3B),
+            new Color(0xEDCF72),
+            new Color(0xEDCC61),
+            new Color(0xEDC850),
+            new Color(0xEDC53F),
+            new Color(0xEDC22E)
+    };
+
+    private Colors() {
+    }
+
+    /**
+     * @param value a tile value
+     * @return the color of a tile with the value
+     */
+    public static Color forValue(int value) {
+        if (Integer.bitCount(value) != 1) {
+            return BEYOND_2048;
+        }
+        int exponent = Integer.numberOfTrailingZeros(value);
+        return exponent < TILES.length ? TILES[exponent] : BEYOND_2048;
+    }
+}
@@ -1,12 +1,22 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Controller class for 2048
  */
 public class Controller {
-	private Grid grid;
-	private Leaderboard leaderboard;
+	private GameEngine grid;
+	private final long seed;
+	private final MoveHistory history;
+	private final ReplayRecorder replay = new ReplayRecorder();
+	private boolean usedUndo;
+	private boolean archived;
+	private final List<MoveListener> listeners = new CopyOnWriteArrayList<>();
+	// the Grid engine's event for the move being made, passed on once the move is recorded
+	private MoveEvent gridEvent;
+	private final MoveListener gridForwarder = event -> gridEvent = event;
 
 	/**
 	 * This constructor initializes the grid to a specified width and height
@@ -15,8 +25,46 @@ public class Controller {
 	 * @param initialHeight - int, the initial height
 	 */
 	public Controller(int initialWidth, int initialHeight) {
-		grid = new Grid(initialWidth, initialHeight);
-		leaderboard = new Leaderboard();
+		this(initialWidth, initialHeight, EngineType.GRID);
+	}
+
+	/**
+	 * This constructor initializes a grid of the given engine type to a
+	 * specified width and height
+	 *
+	 * @param initialWidth - int, the initial width
+	 * @param initialHeight - int, the initial height
+	 * @param engineType - EngineType, the engine that runs the game
+	 */
+	public Controller(int initialWidth, int initialHeight, EngineType engineType) {
+		this(initialWidth, initialHeight, engineType, new SplittableRandomSource().getSeed());
+	}
+
+	/**
+	 * This constructor initializes a grid of the given engine type whose tiles
+	 * are drawn from the given seed, so the game can be replayed from the seed
+	 * and its moves
+	 *
+	 * @param initialWidth - int, the initial width
+	 * @param initialHeight - int, the initial height
+	 * @param engineType - EngineType, the engine that runs the game
+	 * @param seed - long, the seed new tiles are drawn from
+	 */
+	public Controller(int initialWidth, int initialHeight, EngineType engineType, long seed) {
+		this.seed = seed;
+		grid = engineType.create(initialWidth, initialHeight, new SplittableRandomSource(seed));
+		history = new MoveHistory(initialWidth, initialHeight);
+		history.reset(grid);
+		replay.start(seed);
+	}
+
+	/**
+	 * Getter for the seed the game's tiles are drawn from
+	 *
+	 * @return long, the seed
+	 */
+	public long getSeed() {
+		return seed;
 	}
 
 	/**
@@ -55,43 +103,177 @@ public class Controller {
 	  * @return Tile, the specific tile at the location specified
 	  */
 	 public Tile getTile(int row, int col) {
-		 return grid.getTile(row, col);
+		 return tileGrid().getTile(row, col);
 	 }
 
+	 /**
+	  * Getter for the value at a specific cell, works with every engine
+	  *
+	  * @param row - int, the row value
+	  * @param col - int, the column value
+	  *
+	  * @return int, the tile value, 0 if the cell is empty
+	  */
+	 public int getValue(int row, int col) {
+		 return grid.getValue(row, col);
+	 }
+
+
+	/**
+	 * Slide the board in the given direction and remember the move for undo
+	 *
+	 * @param direction - Direction, the direction to slide in
+	 */
+	public void slide(Direction direction) {
+		int pointsBefore = grid.getPoints();
+		boolean wonBefore = !listeners.isEmpty() && grid.isGameWon();
+		gridEvent = null;
+		grid.slide(direction);
+		// a move that changes the board always frees a cell, so it always spawns
+		int spawnIndex = grid.getLastSpawn();
+		if (spawnIndex < 0) {
+			return;
+		}
+		int spawnValue = grid.getValue(spawnIndex / getWidth(), spawnIndex % getWidth());
+		history.record(direction, spawnIndex, spawnValue, grid.getPoints() - pointsBefore, grid);
+		replay.record(direction);
+		if (!listeners.isEmpty()) {
+			MoveEvent event = gridEvent;
+			if (event == null) {
+				event = new MoveEvent(direction, Collections.<Movement>emptyList(), Collections.<GridPosition>emptyList(),
+						spawnIndex / getWidth(), spawnIndex % getWidth(),
+						spawnValue, grid.getPoints() - pointsBefore, grid.getPoints(), grid.isOver(),
+						!wonBefore && grid.isGameWon());
+			}
+			gridEvent = null;
+			for (MoveListener listener : listeners) {
+				listener.moveMade(event);
+			}
+		}
+	}
+
+	/**
+	 * Adds a listener told about every move that changes the board, once
+	 * the move can be undone. Tile movements and merges are only in the
+	 * events of the Grid engine
+	 *
+	 * @param listener - MoveListener, the listener
+	 */
+	public void addMoveListener(MoveListener listener) {
+		if (listeners.isEmpty() && grid instanceof Grid) {
+			((Grid) grid).addMoveListener(gridForwarder);
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with addMoveListener
+	 *
+	 * @param listener - MoveListener, the listener
+	 */
+	public void removeMoveListener(MoveListener listener) {
+		listeners.remove(listener);
+		if (listeners.isEmpty() && grid instanceof Grid) {
+			((Grid) grid).removeMoveListener(gridForwarder);
+		}
+	}
 
 	/**
 	 * Slide the board to the right
 	 */
 	public void slideRight() {
-		grid.slideRight();
+		slide(Direction.RIGHT);
 	}
 
 	/**
 	 * Slide the board to the left
 	 */
 	public void slideLeft() {
-		grid.slideLeft();
+		slide(Direction.LEFT);
 	}
 
 	/**
 	 * Slide the board up
 	 */
 	public void slideUp() {
-		grid.slideUp();
+		slide(Direction.UP);
 	}
 
 	/**
 	 * Slide the board down
 	 */
 	public void slideDown() {
-		grid.slideDown();
+		slide(Direction.DOWN);
+	}
+
+	/**
+	 * Takes back the last move. The restored board gets new tiles, so views
+	 * should redraw it rather than animate it
+	 *
+	 * @return boolean, false if there was no move to take back
+	 */
+	public boolean undo() {
+		if (history.undo(grid)) {
+			usedUndo = true;
+			return true;
+		}
+		return false;
 	}
 
 	/**
-	 * Add a random new tile to an empty space
+	 * Makes the last undone move again, with the same new tile
+	 *
+	 * @return boolean, false if there was no undone move
+	 */
+	public boolean redo() {
+		return history.redo(grid);
+	}
+
+	public boolean canUndo() {
+		return history.canUndo();
+	}
+
+	public boolean canRedo() {
+		return history.canRedo();
+	}
+
+	/**
+	 * Queues this game for the replay archive, unless it was already archived,
+	 * has no moves, or used undo (a replay can only follow the seed forwards)
+	 *
+	 * @return boolean, true if the game was queued
+	 */
+	public boolean archiveReplay() {
+		if (archived || usedUndo || replay.getMoveCount() == 0) {
+			return false;
+		}
+		ReplayWriter archive = ReplayWriter.archive();
+		if (archive == null) {
+			return false;
+		}
+		archive.submit(replay.toReplay(grid));
+		archived = true;
+		return true;
+	}
+
+	/**
+	 * Copies the current board and score into an engine that does not share
+	 * any state with this controller, so it can be read from another thread
+	 *
+	 * @return GameEngine, a copy of the current game
+	 */
+	public GameEngine snapshot() {
+		return new ArrayGrid(grid);
+	}
+
+	/**
+	 * Add a random new tile to an empty space. Used for the starting tiles,
+	 * so the board after it is where undo stops
 	 */
 	public void addRandom() {
 		grid.addRandom();
+		history.reset(grid);
+		replay.recordStartTile();
 	}
 	
 	/**
@@ -100,7 +282,7 @@ public class Controller {
 	 * @return List<Movement>, a list of movements
 	 */
 	public List<Movement> getMovements() {
-		return new ArrayList<>(grid.getMovements());
+		return new ArrayList<>(tileGrid().getMovements());
 	}
 
 	/**
@@ -116,6 +298,34 @@ public class Controller {
 	public boolean isGameWon() {
 		return grid.isGameWon();
 	}
+
+	/**
+	 * Getter for the directions that would change the board
+	 *
+	 * @return int, a mask of Direction.mask() bits, 0 if no move is possible
+	 */
+	public int getLegalMoves() {
+		return grid.getLegalMoves();
+	}
+
+	/**
+	 * Works out a move without making it
+	 *
+	 * @param direction - Direction, the direction to preview
+	 * @return MovePreview, the board and points the slide would give
+	 */
+	public MovePreview preview(Direction direction) {
+		return grid.preview(direction);
+	}
+
+	/**
+	 * Getter for the largest tile on the board
+	 *
+	 * @return int, the largest tile value
+	 */
+	public int getMaxTile() {
+		return grid.getMaxTile();
+	}
 	
 	/**
 	 * Checks to see if a tile is merged (mostly for GUI)
@@ -124,7 +334,27 @@ public class Controller {
 	 * @return boolean; true if tile is merged, false otherwise
 	 */
 	public boolean isTileMerged(int tileId) {
-		return grid.isTileMerged(tileId);
+		return tileGrid().isTileMerged(tileId);
+	}
+
+	/**
+	 * Finds a tile by its ID (mostly for GUI)
+	 *
+	 * @param tileId - int, the ID of the specific tile
+	 * @return GridPosition, where the tile is, null if it is no longer on the board
+	 */
+	public GridPosition getTilePosition(int tileId) {
+		return tileGrid().getTilePosition(tileId);
+	}
+
+	/**
+	 * Gets the cells whose tile changed since the last call, so a view
+	 * only redraws those (mostly for GUI)
+	 *
+	 * @return int[], the changed cells as row * width + col
+	 */
+	public int[] takeChangedCells() {
+		return tileGrid().takeChangedCells();
 	}
 
 	/**
@@ -132,7 +362,7 @@ public class Controller {
 	 * (mostly for GUI)
 	 */
 	public void resetMergedFlags() {
-		grid.resetMergedFlags();
+		tileGrid().resetMergedFlags();
 	}
 
 	/**
@@ -140,45 +370,76 @@ public class Controller {
 	 * merge flags
 	 */
 	public void completeMove() {
-		grid.completeMove();
+		if (grid instanceof Grid) {
+			((Grid) grid).completeMove();
+		}
 	}
 	
 	/**
-	 * Getter for the leaderboard
+	 * Getter for the leaderboard of this board size
 	 * 
-	 * @return ArrayList<LeaderEntry>, a list of LeaderEntry objects which 
-	 * 		make up the leaderboard
+	 * @return List<LeaderEntry>, an unmodifiable list of LeaderEntry objects
+	 * 		which make up the leaderboard
 	 */
-	public ArrayList<LeaderEntry> getLeaderBoard() {
-		return leaderboard.getLeaderBoard();
+	public List<LeaderEntry> getLeaderBoard() {
+		if (LeaderboardClient.shared() != null) {
+			return LeaderboardClient.shared().getShown(getWidth(), getHeight());
+		}
+		return LeaderboardService.get().getShown(getWidth(), getHeight());
 	}
 	
 	/**
-	 * Getter for the highest score
+	 * Getter for the highest score on this board size
 	 * 
 	 * @return int, the highest score
 	 */
 	public int getHighestScore() {
-		return leaderboard.getHighestScore();
+		if (LeaderboardClient.shared() != null) {
+			List<LeaderEntry> shown = getLeaderBoard();
+			return shown.isEmpty() ? 0 : shown.get(0).getScore();
+		}
+		return LeaderboardService.get().getHighestScore(getWidth(), getHeight());
 	}
 	
 	/**
-	 * Getter for the lowest score
+	 * Getter for the lowest score shown on the leaderboard of this board size
 	 * 
 	 * @return int, the lowest score
 	 */
 	public int getLowestScore() {
-		return leaderboard.getLowestScore();
+		if (LeaderboardClient.shared() != null) {
+			List<LeaderEntry> shown = getLeaderBoard();
+			return shown.size() < LeaderboardService.SHOWN ? 0 : shown.get(LeaderboardService.SHOWN - 1).getScore();
+		}
+		return LeaderboardService.get().getLowestScore(getWidth(), getHeight());
 	}
 	
 	/**
-	 * Update the leaderboard
+	 * Update the leaderboard of this board size, on the shared server when
+	 * the leaderboard.server property names one
 	 * 
 	 * @param name - String, the name of the user
 	 * @param score - int, the score to be inputted in the leaderboard
 	 */
 	public void updateLeaderboard(String name, int score) {
-		leaderboard.update(name, score);
+		if (LeaderboardClient.shared() != null) {
+			LeaderboardClient.shared().submit(name, score, getWidth(), getHeight());
+			return;
+		}
+		LeaderboardService.get().submit(name, score, getWidth(), getHeight());
+	}
+
+	/**
+	 * Gives access to the Tile based grid for the methods that need tile ids
+	 *
+	 * @return Grid, the grid backing this controller
+	 * @throws UnsupportedOperationException if a packed engine backs this controller
+	 */
+	private Grid tileGrid() {
+		if (!(grid instanceof Grid)) {
+			throw new UnsupportedOperationException("Tiles are only tracked by the Grid engine");
+		}
+		return (Grid) grid;
 	}
 
 	/**
@@ -0,0 +1,29 @@
+/**
+ * The four directions a board can be slid in.
+ *
+ * - Gives engines, players and recorders a single vocabulary for moves
+ * - Each direction has a bit so sets of directions can be passed around as an int mask
+ */
+
+public enum Direction {
+    UP, DOWN, LEFT, RIGHT;
+
+    private static final Direction[] VALUES = values();
+
+    /**
+     * @return the bit for this direction in a direction mask
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Looks up a direction by its ordinal without allocating a new values array.
+     *
+     * @param ordinal the ordinal of the direction, 0 to 3
+     * @return the matching direction
+     */
+    public static Direction fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
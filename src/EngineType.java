@@ -0,0 +1,49 @@
+/**
+ * The game engines a Controller can be backed by.
+ *
+ * - GRID: the Tile based Grid, needed by the GUI for ids and animations
+ * - BITBOARD: the packed 4x4 engine for fast headless games
+ * - PACKED: packed rows for any board from 4x4 up to 16x16
+ * - ARRAY: a flat int[] of tile values that makes moves without allocating
+ */
+
+public enum EngineType {
+    GRID, BITBOARD, PACKED, ARRAY;
+
+    /**
+     * Creates a new empty engine of this type.
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @return the new engine
+     * @throws IllegalArgumentException if this engine does not support the board size
+     */
+    public GameEngine create(int width, int height) {
+        return create(width, height, new SplittableRandomSource());
+    }
+
+    /**
+     * Creates a new empty engine of this type that spawns tiles from the given source.
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @param random where the new tiles' cells and values are drawn from
+     * @return the new engine
+     * @throws IllegalArgumentException if this engine does not support the board size
+     */
+    public GameEngine create(int width, int height, RandomSource random) {
+        switch (this) {
+            case BITBOARD:
+                if (width != Bitboards.SIZE || height != Bitboards.SIZE) {
+                    throw new IllegalArgumentException("The bitboard engine only supports 4x4 boards");
+                }
+                return new BitboardGrid(random);
+            case PACKED:
+                return new PackedGrid(width, height, random);
+            case ARRAY:
+                return new ArrayGrid(width, height, random);
+            default:
+                return new Grid(width, height, random);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An expectimax search over packed 4x4 boards that picks the move with the best expected outcome.
+ *
+ * - Player nodes take the best of the four slides, chance nodes average over every
+ *   possible spawn (a 2 with probability 0.8, a 4 with 0.2, like Grid.addRandom)
+ * - The four root moves are searched in parallel on a ForkJoinPool
+ * - Chance-node values are shared between threads through a lock-free TranspositionTable
+ * - Iterative deepening: depth 1, 2, 3... until the wall-clock budget runs out or
+ *   cancel is called, then the best move of the deepest finished depth is returned
+ * - Every search remembers the generation it started in and stops once cancel has moved
+ *   the generation on, so a newer search never revives a cancelled one
+ *
+ * Only 4x4 boards are supported since the search works on Bitboards.
+ */
+
+public class ExpectimaxAI implements MovePolicy {
+    private static final double SPAWN_TWO = 0.8;
+    private static final double SPAWN_FOUR = 0.2;
+    private static final double PROBABILITY_CUTOFF = 0.0001;
+
+    private static final float[] ROW_HEURISTIC = new float[65536];
+
+    static {
+        for (int row = 0; row < 65536; row++) {
+            ROW_HEURISTIC[row] = rowHeuristic(row);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long budgetNanos;
+    private final int maxDepth;
+    private final TranspositionTable table = new TranspositionTable(19);
+    // cancel moves this on; a search stops when it no longer matches the one it started in
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Create a search that uses the common ForkJoinPool
+     *
+     * @param budgetMillis how long one call to bestMove may think
+     * @param maxDepth     the deepest search, counted in moves
+     */
+    public ExpectimaxAI(long budgetMillis, int maxDepth) {
+        this(ForkJoinPool.commonPool(), budgetMillis, maxDepth);
+    }
+
+    /**
+     * @param pool         the pool the root moves are searched on
+     * @param budgetMillis how long one call to bestMove may think
+     * @param maxDepth     the deepest search, counted in moves
+     */
+    public ExpectimaxAI(ForkJoinPool pool, long budgetMillis, int maxDepth) {
+        this.pool = pool;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Searches the given game, which is only read while packing it at the start.
+     *
+     * @pre game is 4x4
+     * @param game the current game
+     * @return the best direction, or null if no direction changes the board
+     */
+    @Override
+    public Direction bestMove(GameEngine game) {
+        return bestMove(pack(game));
+    }
+
+    /**
+     * Searches a packed board until the time budget runs out, the maximum depth
+     * is reached or cancel is called.
+     *
+     * @param board a packed board, see Bitboards for the layout
+     * @return the best direction, or null if no direction changes the board
+     */
+    public Direction bestMove(long board) {
+        int search = generation.get();
+        long deadline = System.nanoTime() + budgetNanos;
+        Direction best = null;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            Direction found = searchRoot(board, depth, search, deadline);
+            if (found == null) {
+                break;
+            }
+            best = found;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        if (best == null) {
+            // out of time before depth 1 finished, fall back to any legal move
+            for (Direction direction : Direction.values()) {
+                if (Bitboards.move(board, direction) != board) {
+                    return direction;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stops every running search; each bestMove returns the best move it found so far.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @param game a 4x4 game
+     * @return its board packed as in Bitboards
+     * @throws IllegalArgumentException if the game is not 4x4 or holds a tile above 32768
+     */
+    public static long pack(GameEngine game) {
+        if (game instanceof BitboardGrid) {
+            return ((BitboardGrid) game).getBoard();
+        }
+        if (game.getWidth() != Bitboards.SIZE || game.getHeight() != Bitboards.SIZE) {
+            throw new IllegalArgumentException("Expectimax only searches 4x4 boards");
+        }
+        long board = 0L;
+        for (int i = 0; i < Bitboards.SIZE; i++) {
+            for (int j = 0; j < Bitboards.SIZE; j++) {
+                int value = game.getValue(i, j);
+                if (value == 0) {
+                    continue;
+                }
+                long exponent = Integer.numberOfTrailingZeros(value);
+                if (exponent > Bitboards.MAX_EXPONENT) {
+                    throw new IllegalArgumentException("Tile " + value + " does not fit in a bitboard");
+                }
+                board |= exponent << (16 * i + 4 * j);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Searches every root move to the given depth in parallel.
+     *
+     * @return the best direction, or null if the search was aborted or no move is legal
+     */
+    private Direction searchRoot(long board, int depth, int search, long deadline) {
+        List<RootTask> tasks = new ArrayList<>();
+        for (Direction direction : Direction.values()) {
+            long moved = Bitboards.move(board, direction);
+            if (moved != board) {
+                tasks.add(new RootTask(direction, moved, depth, search, deadline));
+            }
+        }
+        if (tasks.isEmpty()) {
+            return null;
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    invokeAll(tasks);
+                    return null;
+                }
+            });
+        }
+
+        Direction best = null;
+        double bestScore = -1;
+        for (RootTask task : tasks) {
+            double score = task.join();
+            if (Double.isNaN(score)) {
+                return null;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = task.direction;
+            }
+        }
+        return best;
+    }
+
+    private final class RootTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Direction direction;
+        private final long board;
+        private final int depth;
+        private final int search;
+        private final long deadline;
+
+        RootTask(Direction direction, long board, int depth, int search, long deadline) {
+            this.direction = direction;
+            this.board = board;
+            this.depth = depth;
+            this.search = search;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Double compute() {
+            try {
+                return chance(board, depth - 1, 1.0, search, deadline);
+            } catch (SearchAborted e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    private static final class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final SearchAborted INSTANCE = new SearchAborted();
+
+        private SearchAborted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private double chance(long board, int depth, double probability, int search, long deadline) {
+        if (depth == 0 || probability < PROBABILITY_CUTOFF) {
+            return heuristic(board);
+        }
+        if (generation.get() != search || System.nanoTime() >= deadline) {
+            throw SearchAborted.INSTANCE;
+        }
+        float cached = table.get(board, depth);
+        if (!Float.isNaN(cached)) {
+            return cached;
+        }
+
+        long empty = Bitboards.emptyCells(board);
+        int count = Long.bitCount(empty);
+        double total = 0;
+        double twoProbability = probability * SPAWN_TWO / count;
+        double fourProbability = probability * SPAWN_FOUR / count;
+        while (empty != 0) {
+            long cell = empty & -empty;
+            total += SPAWN_TWO * player(board | cell, depth, twoProbability, search, deadline);
+            total += SPAWN_FOUR * player(board | (cell << 1), depth, fourProbability, search, deadline);
+            empty &= empty - 1;
+        }
+        double value = total / count;
+        table.put(board, depth, (float) value);
+        return value;
+    }
+
+    private double player(long board, int depth, double probability, int search, long deadline) {
+        double best = 0;
+        for (int d = 0; d < 4; d++) {
+            long moved = Bitboards.move(board, Direction.fromOrdinal(d));
+            if (moved != board) {
+                best = Math.max(best, chance(moved, depth - 1, probability, search, deadline));
+            }
+        }
+        return best;
+    }
+
+    private static double heuristic(long board) {
+        return rowsHeuristic(board) + rowsHeuristic(Bitboards.transpose(board));
+    }
+
+    private static double rowsHeuristic(long board) {
+        return ROW_HEURISTIC[(int) (board & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((board >>> 16) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((board >>> 32) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((board >>> 48) & 0xFFFF)];
+    }
+
+    /**
+     * Scores one row: rewards empty cells, mergeable neighbours and monotonic
+     * rows, and penalises large tiles that are spread out.
+     */
+    private static float rowHeuristic(int row) {
+        int[] cells = new int[Bitboards.SIZE];
+        for (int k = 0; k < Bitboards.SIZE; k++) {
+            cells[k] = (row >>> (4 * k)) & 0xF;
+        }
+
+        double sum = 0;
+        int empty = 0;
+        int merges = 0;
+        int previous = 0;
+        int counter = 0;
+        for (int rank : cells) {
+            sum += Math.pow(rank, 3.5);
+            if (rank == 0) {
+                empty++;
+            } else {
+                if (previous == rank) {
+                    counter++;
+                } else if (counter > 0) {
+                    merges += 1 + counter;
+                    counter = 0;
+                }
+                previous = rank;
+            }
+        }
+        if (counter > 0) {
+            merges += 1 + counter;
+        }
+
+        double monotonicLeft = 0;
+        double monotonicRight = 0;
+        for (int k = 1; k < Bitboards.SIZE; k++) {
+            if (cells[k - 1] > cells[k]) {
+                monotonicLeft += Math.pow(cells[k - 1], 4) - Math.pow(cells[k], 4);
+            } else {
+                monotonicRight += Math.pow(cells[k], 4) - Math.pow(cells[k - 1], 4);
+            }
+        }
+
+        return (float) (200000.0 + 270.0 * empty + 700.0 * merges
+                - 47.0 * Math.min(monotonicLeft, monotonicRight) - 11.0 * sum);
+    }
+}
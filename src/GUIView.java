@@ -2,8 +2,9 @@
 /**
  * An example of initializing and displaying a 2048 game grid this is how ive been testing it
  *
- * - Creates a Grid instance for game logic and a GridGUI for visual representation
- * - Listens for keyboard input to perform grid movements and triggers animations
+ * - Creates a Grid instance for game logic and a BoardView for visual representation
+ * - Runs the game on a GameLoop thread and draws the BoardSnapshots it publishes
+ * - Listens for keyboard input and queues the moves on the loop, even while animating
  * - Handles game restarts via the restartGame method
  *
  * Usage:
@@ -16,6 +17,7 @@ import java.awt.BorderLayout;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.awt.*;
 import javax.swing.*;
 import java.awt.event.*;
@@ -23,15 +25,26 @@ import javax.swing.border.Border;
 
 public class GUIView extends JFrame {
     private Controller grid;
-    private GridGUI gridGUI;
+    private BoardView gridGUI;
     private JLabel currScoreLabel;
     private JLabel bestScoreLabel;
-    private Sound newSound;
     private boolean gameWon;
+    private JButton hintButton;
+    private ExpectimaxAI hintEngine = new ExpectimaxAI(300, 8);
+    private int hintRequest;
+    private JButton autoPlayButton;
+    private JButton undoButton;
+    private JButton redoButton;
+    private MonteCarloPlayer autoPlayer = new MonteCarloPlayer(250);
+    private boolean autoPlaying;
+    private boolean autoMovePending;
+    // only touched by the event dispatch thread for its size and leaderboard while the loop runs
+    private GameLoop loop;
+    // the newest snapshot the loop delivered
+    private BoardSnapshot board;
 
     public GUIView() {
-        newSound = new Sound("audio/NES - Donkey Kong - Sound Effects/Donkey Kong SFX (4).wav");
-        newSound.play();
+        SoundBank.get().play(SoundBank.NEW_GAME);
 
         setTitle("2048 Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -41,68 +54,41 @@ public class GUIView extends JFrame {
 
         setLayout(new BorderLayout());
 
-        grid = new Controller(4, 4);
-        grid.addRandom();
-        grid.addRandom();
+        grid = newGame();
 
         currScoreLabel = new JLabel("Score: " + grid.getPoints());
         bestScoreLabel = new JLabel("Best Score: " + grid.getHighestScore());
 
-        gridGUI = new GridGUI(grid);
+        gridGUI = BoardView.create(grid.getWidth(), grid.getHeight());
 
         addComponents(getContentPane());
+        startLoop(grid);
 
         addKeyListener(new KeyAdapter() {
-            private boolean animating = false;
-
             @Override
             public void keyPressed(KeyEvent e) {
-                if (animating) {
+                if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Z) {
+                    undoMove();
+                    return;
+                }
+                if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Y) {
+                    redoMove();
                     return;
                 }
-                boolean moved = false;
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_UP:
-                        grid.slideUp();
-                        moved = true;
+                        loop.offerMove(Direction.UP);
                         break;
                     case KeyEvent.VK_DOWN:
-                        grid.slideDown();
-                        moved = true;
+                        loop.offerMove(Direction.DOWN);
                         break;
                     case KeyEvent.VK_LEFT:
-                        grid.slideLeft();
-                        moved = true;
+                        loop.offerMove(Direction.LEFT);
                         break;
                     case KeyEvent.VK_RIGHT:
-                        grid.slideRight();
-                        moved = true;
+                        loop.offerMove(Direction.RIGHT);
                         break;
                 }
-
-                if (moved) {
-                    Sound newSound = new Sound("audio/NES - Donkey Kong - Sound Effects/Donkey Kong SFX (2).wav");
-                    newSound.play();
-                    animating = true;
-                    gridGUI.animateTiles(() -> {
-                        gridGUI.update();
-                        currScoreLabel.setText("Score: " + grid.getPoints());
-                        bestScoreLabel.setText("Best Score: " + grid.getHighestScore());
-                        animating = false;
-                        if (grid.isGameWon() && !gameWon) {
-                            gameWon = true;
-                            changeBackground(new Color(238, 202, 24));
-                            JOptionPane.showMessageDialog(null, "You won!");
-                        } else if (gameWon) {
-                        	changeBackground(new Color((int) (Math.random()*255), (int) (Math.random()*255), (int) (Math.random()*255)));
-                        }
-                        if (grid.isOver()) {
-                            javax.swing.SwingUtilities.invokeLater(() -> {
-                                new GameOverGUI(GUIView.this).setVisible(true);
-                            });
-                        }
-                    });
-                }
             }
         });
         pack();
@@ -112,6 +98,90 @@ public class GUIView extends JFrame {
         requestFocusInWindow();
     }
 
+    /**
+     * Makes a 4x4 game with two tiles that plays the move sound on every move
+     *
+     * @return the game, not yet started on a loop
+     */
+    private Controller newGame() {
+        Controller game = new Controller(4, 4);
+        game.addRandom();
+        game.addRandom();
+        game.addMoveListener(event -> SoundBank.get().play(SoundBank.MOVE));
+        return game;
+    }
+
+    /**
+     * Hands a game to a new GameLoop whose snapshots are drawn by this window
+     *
+     * @param game the game to run
+     */
+    private void startLoop(Controller game) {
+        loop = new GameLoop(game, this::showSnapshots);
+        loop.start();
+    }
+
+    /**
+     * Draws a batch of snapshots from the loop. A running animation is
+     * finished at once and only the newest snapshot is animated, so the board
+     * keeps up however fast moves are made.
+     *
+     * @param snapshots every snapshot published since the last batch, oldest first
+     */
+    private void showSnapshots(java.util.List<BoardSnapshot> snapshots) {
+        clearHint();
+        gridGUI.finishAnimation();
+        BoardSnapshot last = snapshots.get(snapshots.size() - 1);
+        board = last;
+        for (BoardSnapshot snapshot : snapshots.subList(0, snapshots.size() - 1)) {
+            gridGUI.show(snapshot);
+            boardShown(snapshot);
+        }
+        if (last.getMove() != null) {
+            GameLoop shownLoop = loop;
+            gridGUI.animate(last, () -> {
+                if (shownLoop == loop) {
+                    boardShown(last);
+                }
+            });
+        } else {
+            gridGUI.show(last);
+            boardShown(last);
+        }
+    }
+
+    /**
+     * Updates the window once a snapshot is on the board: the scores, the
+     * undo buttons, winning, game over and the next auto play move
+     *
+     * @param snapshot the snapshot just drawn
+     */
+    private void boardShown(BoardSnapshot snapshot) {
+        currScoreLabel.setText("Score: " + snapshot.getPoints());
+        bestScoreLabel.setText("Best Score: " + grid.getHighestScore());
+        updateUndoButtons();
+        MoveEvent move = snapshot.getMove();
+        if (move == null) {
+            return;
+        }
+        if (move.isWon() && !gameWon) {
+            gameWon = true;
+            changeBackground(new Color(238, 202, 24));
+            javax.swing.SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "You won!"));
+        } else if (gameWon) {
+        	changeBackground(new Color((int) (Math.random()*255), (int) (Math.random()*255), (int) (Math.random()*255)));
+        }
+        if (move.isGameOver()) {
+            setAutoPlaying(false);
+            loop.offer(Controller::archiveReplay);
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                new GameOverGUI(GUIView.this).setVisible(true);
+            });
+        } else if (autoPlaying && snapshot == board) {
+            requestAutoMove();
+        }
+    }
+
     /**
      * This method adds all the components to the main game GUI.
      *
@@ -161,6 +231,7 @@ public class GUIView extends JFrame {
         mainMenuButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                loop.stop().archiveReplay();
                 new MainMenu();
                 dispose();
             }
@@ -171,7 +242,56 @@ public class GUIView extends JFrame {
 
         topPanel.add(bestScoreLabel);
 
-        bottomPanel.add(gridGUI, BorderLayout.CENTER);
+        hintButton = new JButton("Hint");
+        hintButton.setFocusable(false);
+        hintButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                requestHint();
+            }
+        });
+        hintButton.setFont(new Font("Arial", Font.BOLD, 15));
+        hintButton.setBounds(640, 60, 130, 40);
+        topPanel.add(hintButton);
+
+        autoPlayButton = new JButton("Auto Play");
+        autoPlayButton.setFocusable(false);
+        autoPlayButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setAutoPlaying(!autoPlaying);
+            }
+        });
+        autoPlayButton.setFont(new Font("Arial", Font.BOLD, 15));
+        autoPlayButton.setBounds(640, 0, 130, 40);
+        topPanel.add(autoPlayButton);
+
+        undoButton = new JButton("Undo");
+        undoButton.setFocusable(false);
+        undoButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undoMove();
+            }
+        });
+        undoButton.setFont(new Font("Arial", Font.BOLD, 15));
+        undoButton.setBounds(334, 0, 118, 40);
+        topPanel.add(undoButton);
+
+        redoButton = new JButton("Redo");
+        redoButton.setFocusable(false);
+        redoButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redoMove();
+            }
+        });
+        redoButton.setFont(new Font("Arial", Font.BOLD, 15));
+        redoButton.setBounds(480, 0, 118, 40);
+        topPanel.add(redoButton);
+        updateUndoButtons();
+
+        bottomPanel.add(gridGUI.getComponent(), BorderLayout.CENTER);
 
         pane.add(topPanel, BorderLayout.NORTH);
         pane.add(leftPanel, BorderLayout.WEST);
@@ -183,6 +303,102 @@ public class GUIView extends JFrame {
 
     }
 
+    /**
+     * Asks the expectimax engine for the best move on a copy of the board.
+     * The search runs on a ForkJoinPool so the keyboard stays responsive, and
+     * the answer is dropped if a move was made in the meantime.
+     *
+     * @pre -
+     * @post the hint button will show the suggested direction when the search is done
+     */
+    private void requestHint() {
+        if (board == null) {
+            return; // the first snapshot of a new game has not arrived yet
+        }
+        int request = ++hintRequest;
+        GameEngine snapshot = board.toEngine();
+        hintButton.setText("Thinking...");
+        CompletableFuture.supplyAsync(() -> hintEngine.bestMove(snapshot))
+                .thenAccept(direction -> SwingUtilities.invokeLater(() -> {
+                    if (request == hintRequest) {
+                        hintButton.setText(direction == null ? "No moves" : "Hint: " + direction);
+                    }
+                }));
+    }
+
+    /**
+     * Turns the Monte Carlo auto player on or off
+     *
+     * @param enabled true to let the computer play
+     */
+    private void setAutoPlaying(boolean enabled) {
+        autoPlaying = enabled;
+        autoPlayButton.setText(enabled ? "Stop" : "Auto Play");
+        if (enabled && board != null) {
+            requestAutoMove();
+        }
+    }
+
+    /**
+     * Lets the Monte Carlo player pick the next move on a copy of the newest
+     * snapshot, away from the EDT, and queues it unless auto play was stopped
+     * meanwhile. If the board moved on during the search, it searches again.
+     */
+    private void requestAutoMove() {
+        if (autoMovePending) {
+            return;
+        }
+        autoMovePending = true;
+        GameLoop game = loop;
+        BoardSnapshot from = board;
+        GameEngine snapshot = from.toEngine();
+        CompletableFuture.supplyAsync(() -> autoPlayer.bestMove(snapshot))
+                .thenAccept(direction -> SwingUtilities.invokeLater(() -> {
+                    autoMovePending = false;
+                    if (!autoPlaying || game != loop) {
+                        return;
+                    }
+                    if (from != board) {
+                        requestAutoMove();
+                    } else if (direction == null) {
+                        setAutoPlaying(false);
+                    } else {
+                        loop.offerMove(direction);
+                    }
+                }));
+    }
+
+    /**
+     * Takes back the last move (Ctrl+Z). Stops auto play so it does not
+     * make the move again straight away.
+     */
+    private void undoMove() {
+        setAutoPlaying(false);
+        loop.offer(Controller::undo);
+    }
+
+    /**
+     * Makes the last undone move again (Ctrl+Y)
+     */
+    private void redoMove() {
+        setAutoPlaying(false);
+        loop.offer(Controller::redo);
+    }
+
+    private void updateUndoButtons() {
+        undoButton.setEnabled(board != null && board.canUndo());
+        redoButton.setEnabled(board != null && board.canRedo());
+    }
+
+    /**
+     * Stops any running hint search and resets the hint button
+     */
+    private void clearHint() {
+        hintRequest++;
+        hintEngine.cancel();
+        hintButton.setText("Hint");
+    }
+
     /**
      * Changes the background color of the panels
      * 
@@ -205,17 +421,25 @@ public class GUIView extends JFrame {
      */
     public void restartGame() {
         // Restart the game logic and update the game board
-        updateLeaderboard();
-        grid = new Controller(4, 4);
-        grid.addRandom();
-        grid.addRandom();
-        gridGUI.setNewGrid(grid);
-        gridGUI.update();
-        currScoreLabel.setText("Score: " + grid.getPoints());
-        bestScoreLabel.setText("Best Score: " + grid.getHighestScore());
+        gridGUI.finishAnimation();
+        setAutoPlaying(false);
+        clearHint();
+        Controller old = loop.stop();
+        try {
+            updateLeaderboard(old);
+            old.archiveReplay();
+        } finally {
+            // whatever happens to the old game, the window must get a running loop again
+            grid = newGame();
+            board = null;
+            updateUndoButtons();
+            // the loop owns the game once it starts, so read its score first
+            currScoreLabel.setText("Score: " + grid.getPoints());
+            bestScoreLabel.setText("Best Score: " + grid.getHighestScore());
+            startLoop(grid);
+        }
         requestFocusInWindow();
-        newSound = new Sound("audio/NES - Donkey Kong - Sound Effects/Donkey Kong SFX (4).wav");
-        newSound.play();
+        SoundBank.get().play(SoundBank.NEW_GAME);
         gameWon = false;
         changeBackground(new Color(250, 248, 240));
 
@@ -227,19 +451,21 @@ public class GUIView extends JFrame {
      *
      * @pre there must be a current score
      * @post leaderboard will be updated if needed
+     *
+     * @param game the game that just ended
      */
-    private void updateLeaderboard() {
-        if (grid.getPoints() > grid.getLowestScore()) {
+    private void updateLeaderboard(Controller game) {
+        if (game.getPoints() > game.getLowestScore()) {
             // Prompt the user for a name
             String playerName = JOptionPane.showInputDialog(
                     "Congratulations! You've made it to the top 10!\nPlease enter your name: ");
 
-            // If user doesn't enter a name, set name to "user"
-            if (playerName == "") {
-                playerName = "User";
+            // If user doesn't enter a name or cancels, set name to "User"
+            if (playerName == null || playerName.isBlank()) {
+                playerName = LeaderboardService.DEFAULT_NAME;
             }
 
-            grid.updateLeaderboard(playerName, grid.getPoints());
+            game.updateLeaderboard(playerName, game.getPoints());
         }
     }
 
@@ -0,0 +1,169 @@
+/**
+ * The game rules as seen by the Controller and by headless players.
+ *
+ * - Grid is the reference implementation and the only one that tracks Tile objects for the GUI
+ * - Other engines store the board in packed form for fast simulation
+ * - Every engine must score merges and spawn tiles exactly the way Grid does
+ */
+
+public interface GameEngine {
+
+    /**
+     * Slides the board to the right, merging if necessary, and adds a
+     * random tile if the board changed
+     */
+    void slideRight();
+
+    /**
+     * Slides the board to the left, merging if necessary, and adds a
+     * random tile if the board changed
+     */
+    void slideLeft();
+
+    /**
+     * Slides the board upwards, merging if necessary, and adds a
+     * random tile if the board changed
+     */
+    void slideUp();
+
+    /**
+     * Slides the board downwards, merging if necessary, and adds a
+     * random tile if the board changed
+     */
+    void slideDown();
+
+    /**
+     * Adds a 2 (80%) or a 4 (20%) to a random empty cell
+     */
+    void addRandom();
+
+    /**
+     * @return true if the board is full and no merge is possible
+     */
+    boolean isOver();
+
+    /**
+     * Tiles never shrink during play, so once this is true it stays true until
+     * loadState replaces the board.
+     *
+     * @return true if a tile of 2048 or more is on the board, checked right
+     *         after every slide, addRandom and loadState
+     */
+    boolean isGameWon();
+
+    /**
+     * @return the cell, row * getWidth() + col, of the tile the last slide added,
+     *         -1 if the last slide did not change the board
+     */
+    int getLastSpawn();
+
+    int getWidth();
+
+    int getHeight();
+
+    int getPoints();
+
+    /**
+     * @return the source new tiles are drawn from
+     */
+    RandomSource getRandomSource();
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the tile value at the cell, 0 if the cell is empty
+     */
+    int getValue(int row, int col);
+
+    /**
+     * Replaces the board with the given tile values and sets the points.
+     * Used to restore saved or recorded positions.
+     *
+     * @pre values.length == getWidth() * getHeight()
+     * @param values    the tile values in row-major order, 0 for empty cells
+     * @param newPoints the points scored so far
+     */
+    void loadState(int[] values, int newPoints);
+
+    /**
+     * @return the largest tile value on the board
+     */
+    default int getMaxTile() {
+        int max = 0;
+        for (int i = 0; i < getHeight(); i++) {
+            for (int j = 0; j < getWidth(); j++) {
+                max = Math.max(max, getValue(i, j));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Works out which directions would change the board, without changing
+     * it and without allocating.
+     *
+     * @return a mask of Direction.mask() bits, 0 if no move is possible
+     */
+    default int getLegalMoves() {
+        int moves = 0;
+        for (int i = 0; i < getHeight(); i++) {
+            for (int j = 0; j < getWidth(); j++) {
+                int value = getValue(i, j);
+                if (j + 1 < getWidth()) {
+                    int right = getValue(i, j + 1);
+                    if (value != 0 && (right == 0 || right == value)) {
+                        moves |= Direction.RIGHT.mask();
+                    }
+                    if (right != 0 && (value == 0 || right == value)) {
+                        moves |= Direction.LEFT.mask();
+                    }
+                }
+                if (i + 1 < getHeight()) {
+                    int below = getValue(i + 1, j);
+                    if (value != 0 && (below == 0 || below == value)) {
+                        moves |= Direction.DOWN.mask();
+                    }
+                    if (below != 0 && (value == 0 || below == value)) {
+                        moves |= Direction.UP.mask();
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Works out the board and the points a slide would give, without
+     * changing this board and without adding a random tile.
+     *
+     * @param direction the direction to preview
+     * @return the outcome of the slide
+     */
+    default MovePreview preview(Direction direction) {
+        ArrayGrid board = new ArrayGrid(this);
+        boolean changed = board.shift(direction);
+        return new MovePreview(direction, changed, board.getPoints() - getPoints(), board);
+    }
+
+    /**
+     * Slides the board in the given direction.
+     *
+     * @param direction the direction to slide in
+     */
+    default void slide(Direction direction) {
+        switch (direction) {
+            case UP:
+                slideUp();
+                break;
+            case DOWN:
+                slideDown();
+                break;
+            case LEFT:
+                slideLeft();
+                break;
+            case RIGHT:
+                slideRight();
+                break;
+        }
+    }
+}
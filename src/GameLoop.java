@@ -0,0 +1,153 @@
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs one game on its own thread, so the event dispatch thread never waits on the model.
+ *
+ * - Keys and buttons offer commands to a queue of INPUT_CAPACITY; the loop thread applies them
+ *   in order as soon as they arrive, and a command offered to a full queue is dropped
+ * - After every command that changed the board the loop publishes a BoardSnapshot
+ * - Snapshots reach the view on the event dispatch thread in batches: every snapshot published
+ *   since the last batch, oldest first, so a view that falls behind can skip animations
+ *   without missing changes
+ *
+ * The Controller must use the Grid engine. While the loop runs only the loop thread may touch it,
+ * apart from its board size and leaderboard methods; stop hands it back.
+ */
+
+public final class GameLoop {
+    static final int INPUT_CAPACITY = 16;
+
+    private final Controller game;
+    private final Consumer<List<BoardSnapshot>> view;
+    private final BlockingQueue<Consumer<Controller>> input = new ArrayBlockingQueue<>(INPUT_CAPACITY);
+    private final ConcurrentLinkedQueue<BoardSnapshot> published = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final Thread thread;
+    private volatile boolean stopped;
+    // the event of the command being run, only used by the loop thread
+    private MoveEvent lastMove;
+    private final MoveListener moveRecorder = event -> lastMove = event;
+
+    /**
+     * @param game the game to run; the loop takes it over once started
+     * @param view given every batch of snapshots on the event dispatch thread
+     */
+    public GameLoop(Controller game, Consumer<List<BoardSnapshot>> view) {
+        this.game = game;
+        this.view = view;
+        thread = new Thread(this::run, "game-loop");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the loop; its first snapshot lists every cell, so the view redraws the whole board
+     */
+    public void start() {
+        game.addMoveListener(moveRecorder);
+        thread.start();
+    }
+
+    /**
+     * Queues a move; moves that would not change the board are ignored by the loop
+     *
+     * @param direction the direction to slide in
+     * @return false if the queue was full or the loop stopped, and the move was dropped
+     */
+    public boolean offerMove(Direction direction) {
+        return offer(game -> {
+            if ((game.getLegalMoves() & direction.mask()) != 0) {
+                game.slide(direction);
+            }
+        });
+    }
+
+    /**
+     * Queues a command to run on the loop thread, e.g. Controller::undo
+     *
+     * @param command the command
+     * @return false if the queue was full or the loop stopped, and the command was dropped
+     */
+    public boolean offer(Consumer<Controller> command) {
+        return !stopped && input.offer(command);
+    }
+
+    /**
+     * Stops the loop once its current command is done; commands still queued are dropped
+     * and no more snapshots reach the view
+     *
+     * @return the game, which the calling thread now owns, without the listener the loop added
+     */
+    public Controller stop() {
+        stopped = true;
+        thread.interrupt();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        game.removeMoveListener(moveRecorder);
+        return game;
+    }
+
+    private void run() {
+        game.takeChangedCells();
+        int[] everyCell = new int[game.getWidth() * game.getHeight()];
+        for (int cell = 0; cell < everyCell.length; cell++) {
+            everyCell[cell] = cell;
+        }
+        publish(BoardSnapshot.of(game, everyCell, null));
+        while (!stopped) {
+            Consumer<Controller> command;
+            try {
+                command = input.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            lastMove = null;
+            try {
+                command.accept(game);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the game running
+            }
+            int[] changed = game.takeChangedCells();
+            if (changed.length > 0) {
+                publish(BoardSnapshot.of(game, changed, lastMove));
+            }
+        }
+    }
+
+    private void publish(BoardSnapshot snapshot) {
+        published.add(snapshot);
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::deliver);
+        }
+    }
+
+    /**
+     * Hands the view every snapshot published since the last batch, on the event dispatch thread
+     */
+    private void deliver() {
+        deliveryScheduled.set(false);
+        List<BoardSnapshot> batch = new ArrayList<>();
+        BoardSnapshot snapshot;
+        while ((snapshot = published.poll()) != null) {
+            batch.add(snapshot);
+        }
+        if (!stopped && !batch.isEmpty()) {
+            view.accept(batch);
+        }
+    }
+}
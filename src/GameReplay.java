@@ -0,0 +1,184 @@
+import java.nio.ByteBuffer;
+
+/**
+ * One recorded game: the seed its tiles were drawn from and the directions that were played.
+ *
+ * - Spawns are not stored; replaying draws them again from the seed, so a move costs one byte
+ * - The final points are stored so a replay can be checked against what was recorded
+ * - Every engine draws spawns the same way, so any of them can replay any game of a size it supports
+ *
+ * Record layout, big-endian, HEADER_BYTES then one byte per move:
+ *   int moveCount, byte width, byte height, byte startTiles, long seed, int points, byte[moveCount] directions
+ */
+
+public final class GameReplay {
+    public static final int HEADER_BYTES = 4 + 1 + 1 + 1 + 8 + 4;
+    private static final int WIDTH_OFFSET = 4;
+    private static final int HEIGHT_OFFSET = 5;
+    private static final int START_TILES_OFFSET = 6;
+    private static final int SEED_OFFSET = 7;
+    private static final int POINTS_OFFSET = 15;
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int startTiles;
+    private final int points;
+    private final byte[] moves;
+
+    /**
+     * @param seed       the seed of the game's SplittableRandomSource
+     * @param width      the board width
+     * @param height     the board height
+     * @param startTiles the number of random tiles added before the first move
+     * @param points     the points at the end of the recorded moves
+     * @param moves      the direction ordinals in the order they were played, not copied
+     */
+    public GameReplay(long seed, int width, int height, int startTiles, int points, byte[] moves) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.startTiles = startTiles;
+        this.points = points;
+        this.moves = moves;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStartTiles() {
+        return startTiles;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    public Direction getMove(int index) {
+        return Direction.fromOrdinal(moves[index]);
+    }
+
+    /**
+     * @return the number of bytes this game takes in a replay archive
+     */
+    public int encodedSize() {
+        return HEADER_BYTES + moves.length;
+    }
+
+    /**
+     * Writes this game at the buffer's position and advances it
+     *
+     * @param buffer the buffer to write to, with at least encodedSize() bytes left
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(moves.length);
+        buffer.put((byte) width);
+        buffer.put((byte) height);
+        buffer.put((byte) startTiles);
+        buffer.putLong(seed);
+        buffer.putInt(points);
+        buffer.put(moves);
+    }
+
+    /**
+     * Reads the game that starts at the given offset, without moving the buffer's position
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the offset of the record in the buffer
+     * @return the game
+     */
+    public static GameReplay readFrom(ByteBuffer buffer, int offset) {
+        int moveCount = buffer.getInt(offset);
+        byte[] moves = new byte[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            moves[i] = buffer.get(offset + HEADER_BYTES + i);
+        }
+        return new GameReplay(buffer.getLong(offset + SEED_OFFSET), buffer.get(offset + WIDTH_OFFSET) & 0xFF,
+                buffer.get(offset + HEIGHT_OFFSET) & 0xFF, buffer.get(offset + START_TILES_OFFSET) & 0xFF,
+                buffer.getInt(offset + POINTS_OFFSET), moves);
+    }
+
+    /**
+     * @return the number of bytes taken by the record that starts at the given offset,
+     *         or -1 if its move count is negative, so it cannot be a record
+     */
+    static long recordSize(ByteBuffer buffer, int offset) {
+        int moveCount = buffer.getInt(offset);
+        return moveCount < 0 ? -1 : HEADER_BYTES + (long) moveCount;
+    }
+
+    /**
+     * Plays this game again on a new engine
+     *
+     * @param engineType the engine to play on
+     * @return the engine after the last move
+     */
+    public GameEngine replay(EngineType engineType) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize());
+        writeTo(buffer);
+        return replay(buffer, 0, engineType);
+    }
+
+    /**
+     * Plays the game stored at the given offset again without copying its moves out of the buffer
+     *
+     * @param buffer     the buffer holding the record, only read with absolute gets
+     * @param offset     the offset of the record in the buffer
+     * @param engineType the engine to play on
+     * @return the engine after the last move
+     */
+    static GameEngine replay(ByteBuffer buffer, int offset, EngineType engineType) {
+        int moveCount = buffer.getInt(offset);
+        GameEngine engine = engineType.create(buffer.get(offset + WIDTH_OFFSET) & 0xFF,
+                buffer.get(offset + HEIGHT_OFFSET) & 0xFF, new SplittableRandomSource(buffer.getLong(offset + SEED_OFFSET)));
+        int startTiles = buffer.get(offset + START_TILES_OFFSET) & 0xFF;
+        for (int i = 0; i < startTiles; i++) {
+            engine.addRandom();
+        }
+        for (int i = 0; i < moveCount; i++) {
+            engine.slide(Direction.fromOrdinal(buffer.get(offset + HEADER_BYTES + i)));
+        }
+        return engine;
+    }
+
+    /**
+     * @return the points recorded for the game that starts at the given offset
+     */
+    static int recordedPoints(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + POINTS_OFFSET);
+    }
+
+    /**
+     * @return the number of moves in the game that starts at the given offset
+     */
+    static int moveCount(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * @return the board width of the game that starts at the given offset
+     */
+    static int width(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + WIDTH_OFFSET) & 0xFF;
+    }
+
+    /**
+     * @return the board height of the game that starts at the given offset
+     */
+    static int height(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + HEIGHT_OFFSET) & 0xFF;
+    }
+}
@@ -4,15 +4,30 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class Grid {
+public class Grid implements GameEngine {
     private ArrayList<ArrayList<Tile>> grid;
     private int width;
     private int height;
     private ArrayList<ArrayList<Tile>> prevMoveState;
     private ArrayList<ArrayList<Tile>> afterMoveState;
     private int points;
-    private boolean isGameWon;
+    private int lastSpawnRow = -1;
+    private int lastSpawnCol = -1;
+    private int lastSpawnValue;
+    private final RandomSource random;
+    // bit row * width + col is set while that cell is empty, kept up to date by setTile
+    private final long[] emptyCells;
+    // kept up to date by setTile, so isOver, isGameWon and getMaxTile never scan the board
+    private int emptyCount;
+    private int equalPairs;
+    private int maxTile;
+    // the cell index, row * width + col, of every tile on the board, by tile id; kept up to date by setTile
+    private final TilePositions positions;
+    // bit row * width + col is set once the tile in that cell is replaced, until takeChangedCells
+    private final long[] changedCells;
+    private final List<MoveListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Create a new grid with the given height and weight
@@ -22,7 +37,21 @@ public class Grid {
      * @param initialHeight
      */
     public Grid(int initialWidth, int initialHeight) {
+        this(initialWidth, initialHeight, new SplittableRandomSource());
+    }
+
+    /**
+     * Create a new grid with the given height and weight that spawns tiles
+     * from the given source
+     *
+     * @pre initialWidth > 3 && initialHeight > 3
+     * @param initialWidth
+     * @param initialHeight
+     * @param random where the new tiles' cells and values are drawn from
+     */
+    public Grid(int initialWidth, int initialHeight, RandomSource random) {
         assert initialWidth > 3 && initialHeight > 3;
+        this.random = random;
         grid = new ArrayList<ArrayList<Tile>>();
         for (int i = 0; i < initialHeight; i++) {
             ArrayList<Tile> array = new ArrayList<Tile>();
@@ -34,6 +63,34 @@ public class Grid {
 
         width = initialWidth;
         height = initialHeight;
+        emptyCells = new long[(width * height + 63) >>> 6];
+        changedCells = new long[emptyCells.length];
+        positions = new TilePositions(width * height);
+        for (int index = 0; index < width * height; index++) {
+            emptyCells[index >>> 6] |= 1L << index;
+        }
+        emptyCount = width * height;
+    }
+
+    /**
+     * Replaces the board with the given tile values, each in a new Tile,
+     * and sets the points. Used to restore saved or recorded positions.
+     *
+     * @pre values.length == getWidth() * getHeight()
+     * @param values the tile values in row-major order, 0 for empty cells
+     * @param newPoints the points scored so far
+     */
+    public void loadState(int[] values, int newPoints) {
+        assert values.length == width * height;
+        maxTile = 0;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                setTile(i, j, new Tile(values[i * width + j]));
+            }
+        }
+        points = newPoints;
+        prevMoveState = copyState(grid);
+        afterMoveState = copyState(grid);
     }
 
     /**
@@ -43,11 +100,17 @@ public class Grid {
      */
     private void slideRightLogic() {
         prevMoveState = copyState(grid);
-        printGrid(prevMoveState);
+        completeMove(); // flags left over from the last move must not block merges in this one
         for (int i = 0; i < height; i++) {
-            Collections.reverse(grid.get(i));
-            slideHelper(grid.get(i), i);
-            Collections.reverse(grid.get(i));
+            ArrayList<Tile> newArray = new ArrayList<Tile>(grid.get(i));
+
+            Collections.reverse(newArray);
+            slideHelper(newArray, i);
+            Collections.reverse(newArray);
+
+            for (int j = 0; j < width; j++) {
+                setTile(i, j, newArray.get(j));
+            }
         }
     }
 
@@ -56,12 +119,9 @@ public class Grid {
      * random tile if able to
      */
     public void slideRight() {
+        int pointsBefore = points;
         slideRightLogic();
-        if (!gridsAreEqual(prevMoveState, grid)) {
-            addRandom();
-        }
-        afterMoveState = copyState(grid);
-        printGrid(afterMoveState);
+        finishMove(Direction.RIGHT, pointsBefore);
     }
 
     /**
@@ -71,10 +131,15 @@ public class Grid {
      */
     private void slideLeftLogic() {
         prevMoveState = copyState(grid);
-        printGrid(prevMoveState);
-        System.out.println("\n");
+        completeMove(); // flags left over from the last move must not block merges in this one
         for (int i = 0; i < height; i++) {
-            slideHelper(grid.get(i), i);
+            ArrayList<Tile> newArray = new ArrayList<Tile>(grid.get(i));
+
+            slideHelper(newArray, i);
+
+            for (int j = 0; j < width; j++) {
+                setTile(i, j, newArray.get(j));
+            }
         }
     }
 
@@ -83,12 +148,9 @@ public class Grid {
      * random tile if able to
      */
     public void slideLeft() {
+        int pointsBefore = points;
         slideLeftLogic();
-        if (!gridsAreEqual(prevMoveState, grid)) {
-            addRandom();
-        }
-        afterMoveState = copyState(grid);
-        printGrid(afterMoveState);
+        finishMove(Direction.LEFT, pointsBefore);
     }
 
     /**
@@ -98,8 +160,7 @@ public class Grid {
      */
     private void slideUpLogic() {
         prevMoveState = copyState(grid);
-        printGrid(prevMoveState);
-        System.out.println("\n");
+        completeMove(); // flags left over from the last move must not block merges in this one
         for (int j = 0; j < width; j++) {
             ArrayList<Tile> newArray = new ArrayList<Tile>();
             for (int i = 0; i < height; i++) {
@@ -109,7 +170,7 @@ public class Grid {
             slideHelper(newArray, j);
 
             for (int i = 0; i < height; i++) {
-                grid.get(i).set(j, newArray.get(i));
+                setTile(i, j, newArray.get(i));
             }
         }
     }
@@ -119,13 +180,9 @@ public class Grid {
      * random tile if able to
      */
     public void slideUp() {
+        int pointsBefore = points;
         slideUpLogic();
-
-        if (!gridsAreEqual(prevMoveState, grid)) { // Only add random tile if grid changes
-            addRandom();
-        }
-        afterMoveState = copyState(grid);
-        printGrid(afterMoveState);
+        finishMove(Direction.UP, pointsBefore);
     }
 
     /**
@@ -135,8 +192,7 @@ public class Grid {
      */
     private void slideDownLogic() {
         prevMoveState = copyState(grid);
-        printGrid(prevMoveState);
-        System.out.println("\n");
+        completeMove(); // flags left over from the last move must not block merges in this one
         for (int j = 0; j < width; j++) {
             ArrayList<Tile> newArray = new ArrayList<Tile>();
             for (int i = 0; i < height; i++) {
@@ -148,7 +204,7 @@ public class Grid {
             Collections.reverse(newArray);
 
             for (int i = 0; i < height; i++) {
-                grid.get(i).set(j, newArray.get(i));
+                setTile(i, j, newArray.get(i));
             }
         }
     }
@@ -158,13 +214,69 @@ public class Grid {
      * random tile if able to
      */
     public void slideDown() {
+        int pointsBefore = points;
         slideDownLogic();
+        finishMove(Direction.DOWN, pointsBefore);
+    }
 
-        if (!gridsAreEqual(prevMoveState, grid)) { // Only add random tile if grid changes
+    /**
+     * Shared end of every move: adds a random tile if the move changed the
+     * board, remembers the resulting state and traces the move if enabled
+     *
+     * @param direction    the direction the board was slid in
+     * @param pointsBefore the points before the move
+     */
+    private void finishMove(Direction direction, int pointsBefore) {
+        lastSpawnRow = -1;
+        lastSpawnCol = -1;
+        lastSpawnValue = 0;
+        boolean changed = !gridsAreEqual(prevMoveState, grid);
+        if (changed) { // Only add random tile if grid changes
             addRandom();
         }
         afterMoveState = copyState(grid);
-        printGrid(afterMoveState);
+        if (MoveTrace.isEnabled(TraceLevel.MOVES)) {
+            traceMove(direction, pointsBefore);
+        }
+        if (changed && !listeners.isEmpty()) {
+            publishMove(direction, pointsBefore);
+        }
+    }
+
+    /**
+     * Adds a listener told about every move that changes the board
+     *
+     * @param listener the listener
+     */
+    public void addMoveListener(MoveListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeMoveListener(MoveListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Tells the listeners about the move just made; only called when there
+     * are listeners, so unwatched games never build the event
+     */
+    private void publishMove(Direction direction, int pointsBefore) {
+        List<GridPosition> merges = new ArrayList<>();
+        int maxBefore = 0;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                List<Integer> mergedFrom = grid.get(i).get(j).getMergedFromIds();
+                if (mergedFrom != null && mergedFrom.size() > 1) {
+                    merges.add(new GridPosition(i, j));
+                }
+                maxBefore = Math.max(maxBefore, prevMoveState.get(i).get(j).getValue());
+            }
+        }
+        MoveEvent event = new MoveEvent(direction, getMovements(), merges, lastSpawnRow, lastSpawnCol,
+                lastSpawnValue, points - pointsBefore, points, isOver(), maxBefore < 2048 && isGameWon());
+        for (MoveListener listener : listeners) {
+            listener.moveMade(event);
+        }
     }
 
     /**
@@ -203,43 +315,107 @@ public class Grid {
     }
 
     /**
-     * searches the grid for empty tiles and adds them as a tuple coordinate to an
-     * array
-     * we then get a random empty tile and make that a 2 or 4
+     * picks the k-th empty cell in row-major order straight from the empty cell
+     * bits, so no list of empty cells is built, and makes it a 2 or 4
      */
     public void addRandom() {
-        ArrayList<MyTuple> tupleList = new ArrayList<MyTuple>();
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                if (grid.get(i).get(j).getValue() == 0) {
-                    tupleList.add(new MyTuple(i, j));
-                }
-                if (grid.get(i).get(j).getValue() == 2048) {
-                    isGameWon = true;
-                }
-            }
-        }
-        if (tupleList.size() == 0) {
-            System.out.println("No empty tiles available to add a random tile.");
+        if (emptyCount == 0) {
             return;
         }
-        int randInt = (int) (Math.random() * tupleList.size());
-        MyTuple gridCoords = tupleList.get(randInt);
+        int randInt = random.nextInt(emptyCount);
+        int word = 0;
+        while (randInt >= Long.bitCount(emptyCells[word])) {
+            randInt -= Long.bitCount(emptyCells[word]);
+            word++;
+        }
+        long empty = emptyCells[word];
+        for (int k = 0; k < randInt; k++) {
+            empty &= empty - 1;
+        }
+        int index = (word << 6) + Long.numberOfTrailingZeros(empty);
         Tile newTile;
-        double randomNum = Math.random();
+        double randomNum = random.nextDouble();
         if (randomNum > 0.8) {
             newTile = new Tile(4);
         } else {
             newTile = new Tile(2);
         }
-        grid.get(gridCoords.vali).set(gridCoords.valj, newTile);
+        lastSpawnRow = index / width;
+        lastSpawnCol = index % width;
+        lastSpawnValue = newTile.getValue();
+        setTile(lastSpawnRow, lastSpawnCol, newTile);
     }
 
     /**
-     * @return returns where if there is a 2048 tile anywhere in the grid
+     * The only place tiles are put on the board, so the empty cell bits, the
+     * empty cell count, the equal neighbour count, the max tile, the tile
+     * positions and the changed cells always match the board
+     */
+    private void setTile(int row, int col, Tile tile) {
+        Tile oldTile = grid.get(row).get(col);
+        if (oldTile == tile) {
+            return;
+        }
+        int index = row * width + col;
+        int oldValue = oldTile.getValue();
+        int newValue = tile.getValue();
+        // a tile that already moved to a later cell keeps its new position
+        if (oldValue != 0 && positions.get(oldTile.getId()) == index) {
+            positions.remove(oldTile.getId());
+        }
+        if (newValue != 0) {
+            positions.put(tile.getId(), index);
+        }
+        // a fresh empty Tile in an empty cell, e.g. the padding slideHelper adds, changes nothing a view shows
+        if (oldValue != newValue || (newValue != 0 && oldTile.getId() != tile.getId())) {
+            changedCells[index >>> 6] |= 1L << index;
+        }
+        if (oldValue != newValue) {
+            equalPairs -= equalNeighbours(row, col, oldValue);
+            equalPairs += equalNeighbours(row, col, newValue);
+        }
+        grid.get(row).set(col, tile);
+        if ((oldValue == 0) != (newValue == 0)) {
+            emptyCells[index >>> 6] ^= 1L << index;
+            emptyCount += newValue == 0 ? 1 : -1;
+        }
+        maxTile = Math.max(maxTile, newValue);
+    }
+
+    // the number of cells next to (row, col) that hold the given non-zero value
+    private int equalNeighbours(int row, int col, int value) {
+        if (value == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (col > 0 && grid.get(row).get(col - 1).getValue() == value) {
+            count++;
+        }
+        if (col + 1 < width && grid.get(row).get(col + 1).getValue() == value) {
+            count++;
+        }
+        if (row > 0 && grid.get(row - 1).get(col).getValue() == value) {
+            count++;
+        }
+        if (row + 1 < height && grid.get(row + 1).get(col).getValue() == value) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return true if a tile of 2048 or more is on the board
      */
     public boolean isGameWon() {
-        return isGameWon;
+        return maxTile >= 2048;
+    }
+
+    /**
+     * @return the largest tile value on the board, tiles never shrink so this
+     *         is also the largest value the game has reached
+     */
+    public int getMaxTile() {
+        return maxTile;
     }
 
     @Override
@@ -260,18 +436,6 @@ public class Grid {
         return string;
     }
 
-    // Allows us to store two index values as a single value which is helpful for a
-    // 2d array
-    public class MyTuple {
-        int vali;
-        int valj;
-
-        public MyTuple(int i, int j) {
-            vali = i;
-            valj = j;
-        }
-    }
-
     private boolean gridsAreEqual(ArrayList<ArrayList<Tile>> grid1, ArrayList<ArrayList<Tile>> grid2) {
         if (grid1.size() != grid2.size())
             return false;
@@ -299,7 +463,7 @@ public class Grid {
      * @return A new Tile object with merged value
      */
     private Tile mergeTiles(Tile tile1, Tile tile2) {
-        int mergedValue = tile1.doubleVal();
+        int mergedValue = tile1.getValue() * 2;
         points += mergedValue;
         Tile mergedTile = new Tile(mergedValue);
         mergedTile.setId(tile1.getId());
@@ -311,19 +475,18 @@ public class Grid {
 
     // checks if board is full and no other moves are available
     public boolean isOver() {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int value = grid.get(i).get(j).getValue();
-                if (value == 0) {
-                    return false;
-                } else if (j + 1 < width && value == grid.get(i).get(j + 1).getValue()) {
-                    return false;
-                } else if (i + 1 < height && value == grid.get(i + 1).get(j).getValue()) {
-                    return false;
-                }
-            }
+        return emptyCount == 0 && equalPairs == 0;
+    }
+
+    /**
+     * @return a mask of Direction.mask() bits for the directions that would
+     *         change the board, worked out without changing it
+     */
+    public int getLegalMoves() {
+        if (isOver()) {
+            return 0;
         }
-        return true;
+        return GameEngine.super.getLegalMoves();
     }
 
     /**
@@ -385,6 +548,11 @@ public class Grid {
         }
     }
 
+    // snapshot of the current board, package-private so the benchmarks can measure it
+    ArrayList<ArrayList<Tile>> copyState() {
+        return copyState(grid);
+    }
+
     // allow to keep track of state so random tiles arent added when the state
     // doesn't change
     private ArrayList<ArrayList<Tile>> copyState(ArrayList<ArrayList<Tile>> oldGrid) {
@@ -402,17 +570,43 @@ public class Grid {
     }
 
     public boolean isTileMerged(int tileId) {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                Tile currTile = grid.get(i).get(j);
-                if (currTile.getId() == tileId) {
-                    if (currTile.getMergedFromIds() != null && currTile.getMergedFromIds().size() > 1) {
-                        return true;
-                    }
-                }
+        int index = positions.get(tileId);
+        if (index < 0) {
+            return false;
+        }
+        Tile currTile = grid.get(index / width).get(index % width);
+        return currTile.getMergedFromIds() != null && currTile.getMergedFromIds().size() > 1;
+    }
+
+    /**
+     * @param tileId the id of a tile
+     * @return where the tile is, or null if it is no longer on the board
+     */
+    public GridPosition getTilePosition(int tileId) {
+        int index = positions.get(tileId);
+        return index < 0 ? null : new GridPosition(index / width, index % width);
+    }
+
+    /**
+     * Gets the cells whose tile was replaced since the last call, so a view
+     * can redraw only those; the cells are then marked unchanged
+     *
+     * @return the indices, row * width + col, of the changed cells in order
+     */
+    public int[] takeChangedCells() {
+        int count = 0;
+        for (long word : changedCells) {
+            count += Long.bitCount(word);
+        }
+        int[] cells = new int[count];
+        int next = 0;
+        for (int word = 0; word < changedCells.length; word++) {
+            for (long bits = changedCells[word]; bits != 0; bits &= bits - 1) {
+                cells[next++] = (word << 6) + Long.numberOfTrailingZeros(bits);
             }
+            changedCells[word] = 0;
         }
-        return false;
+        return cells;
     }
 
     public void resetMergedFlags() {
@@ -430,6 +624,15 @@ public class Grid {
 
     // Getters
 
+    public RandomSource getRandomSource() {
+        return random;
+    }
+
+    @Override
+    public int getLastSpawn() {
+        return lastSpawnRow < 0 ? -1 : lastSpawnRow * width + lastSpawnCol;
+    }
+
     public int getWidth() {
         return width;
     }
@@ -446,25 +649,36 @@ public class Grid {
         return grid.get(row).get(col);
     }
 
+    public int getValue(int row, int col) {
+        return grid.get(row).get(col).getValue();
+    }
+
     ///////////////////////
     // DEBUGGING Methods //
     ///////////////////////
 
-    private void printTileArray(ArrayList<Tile> array) {
-        for (Tile tile : array) {
-            System.out.print(tile + " ");
+    // hands the last move to the trace writer instead of printing it here
+    private void traceMove(Direction direction, int pointsBefore) {
+        MoveRecord record = MoveTrace.claim();
+        if (record == null) {
+            return;
         }
-        System.out.println();
-    }
-
-    // for debugging grid
-    private void printGrid(ArrayList<ArrayList<Tile>> gridState) {
-        for (ArrayList<Tile> row : gridState) {
-            for (Tile tile : row) {
-                System.out.print(tile.getValue() + " ");
+        record.direction = direction;
+        record.scoreDelta = points - pointsBefore;
+        record.points = points;
+        record.spawnRow = lastSpawnRow;
+        record.spawnCol = lastSpawnCol;
+        record.spawnValue = lastSpawnValue;
+        record.setSize(width, height);
+        if (MoveTrace.isEnabled(TraceLevel.BOARDS)) {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    record.before[i * width + j] = prevMoveState.get(i).get(j).getValue();
+                    record.after[i * width + j] = afterMoveState.get(i).get(j).getValue();
+                }
             }
-            System.out.println();
+            record.hasBoards = true;
         }
-        System.out.println();
+        MoveTrace.publish(record);
     }
 }
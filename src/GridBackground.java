@@ -26,11 +26,11 @@ public class GridBackground extends JPanel {
         super.paintComponent(g);
 
         // Draw grid background
-        g.setColor(new Color(0xBBADA0));
+        g.setColor(Colors.BOARD);
         g.fillRect(0, 0, getWidth(), getHeight());
 
         // Draw empty grid cells
-        g.setColor(new Color(0xCDC1B4));
+        g.setColor(Colors.EMPTY_CELL);
         int cellPadding = 7;
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
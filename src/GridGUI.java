@@ -2,7 +2,7 @@
  * Manages the visual representation of the game grid and its tiles.
  *
  * - Renders the grid background and TileGUI components
- * - Synchronizes the visual grid with the logical grid Grid
+ * - Synchronizes the visual grid with the BoardSnapshots of the game
  * - Handles animations for tile movements and merges
  * - Supports grid updates and resets
  *
@@ -13,225 +13,152 @@
  import java.awt.*;
  import java.util.List;
  import java.util.HashMap;
+ import java.util.HashSet;
  import java.util.Map;
- import java.util.Iterator;
- import java.util.concurrent.atomic.AtomicInteger;
+ import java.util.Set;
+ import java.util.Arrays;
+ import java.util.ArrayList;
 
 
- public class GridGUI extends JLayeredPane {
+ public class GridGUI extends JLayeredPane implements BoardView {
      private Map<Integer, TileGUI> tiles;
-     private Controller grid;
+     // the id of the tile drawn in each cell, row * width + col, -1 where the cell is empty
+     private int[] shownIds;
+     private int width;
+     private int height;
      private int tileSize = 120;
      private int padding = 30;
+     private AnimationClock.Batch animation;
 
-     public GridGUI(Controller grid) {
-         this.grid = grid;
-         int height = grid.getHeight();
-         int width = grid.getWidth();
+     public GridGUI(int width, int height) {
+         this.width = width;
+         this.height = height;
          tiles = new HashMap<>();
+         shownIds = new int[width * height];
+         Arrays.fill(shownIds, -1);
 
          setPreferredSize(new Dimension(width * tileSize, height * tileSize));
 
          GridBackground gridBackground = new GridBackground(width, height, tileSize);
          gridBackground.setBounds(0, 0, width * tileSize, height * tileSize);
          add(gridBackground, Integer.valueOf(0));
-
-
-
-         createTiles();
-     }
-
-
-
-     /**
-      * Initializes the visual grid by creating and placing `TileGUI` objects for non-empty tiles
-      *
-      * - Clears existing TileGUI and resets the tiles map
-      * - Adds the GridBackground to represent the grid layout
-      * - Calculates positions and adds tiles to the pane and tiles map
-      *
-      * Used during `GridGUI` initialization and when resetting or updating the grid
-      */
-     private void createTiles() {
-         removeAll();
-         tiles.clear();
-
-         int height = grid.getHeight();
-         int width = grid.getWidth();
-
-         GridBackground gridBackground = new GridBackground(width, height, tileSize);
-         gridBackground.setBounds(0, 0, width * tileSize, height * tileSize);
-         add(gridBackground, Integer.valueOf(0));
-
-         for (int i = 0; i < height; i++) {
-             for (int j = 0; j < width; j++) {
-                 Tile tile = grid.getTile(i, j);
-                 int value = tile.getValue();
-                 if (value != 0) {
-                     GridPosition pos = new GridPosition(i, j);
-                     TileGUI tileGUI = new TileGUI(value, pos, tileSize, tile.getId(), grid);
-                     tiles.put(tile.getId(), tileGUI);
-
-
-                     int padding = 5;
-                     int x = j * tileSize + padding;
-                     int y = i * tileSize + padding;
-                     tileGUI.setBounds(x, y, tileSize - 2 * padding, tileSize - 2 * padding);
-
-                     add(tileGUI, Integer.valueOf(1));
-                 }
-             }
-         }
-         revalidate();
-         repaint();
      }
 
 
      /**
-      * Synchronizes the visual grid GridGUI with the logical grid Grid
+      * Synchronizes the visual grid GridGUI with a snapshot of the game
       *
-      * - Removes TileGUI's that no longer exist
+      * - Only looks at the cells the snapshot lists as changed
+      * - Removes TileGUI's whose tile has left those cells and not come back in another
       * - Adds new TileGUI objects for tiles with non-zero values
       * - Updates the positions and values of existing TileGUI's
       *
       * Used to reflect changes in the grid after moves or state updates
       */
-     public void update() {
-         Iterator<Map.Entry<Integer, TileGUI>> iterator = tiles.entrySet().iterator();
-         while (iterator.hasNext()) {
-             Map.Entry<Integer, TileGUI> entry = iterator.next();
-             int tileId = entry.getKey();
-             boolean tileExists = false;
-
-             for (int i = 0; i < grid.getHeight(); i++) {
-                 for (int j = 0; j < grid.getWidth(); j++) {
-                     Tile tile = grid.getTile(i, j);
-                     if (tile.getValue() != 0 && tile.getId() == tileId) {
-                         tileExists = true;
-                         break;
-                     }
-                 }
-                 if (tileExists) break;
+     @Override
+     public void show(BoardSnapshot snapshot) {
+         Set<Integer> leaving = new HashSet<>();
+         for (int k = 0; k < snapshot.getChangedCellCount(); k++) {
+             int oldId = shownIds[snapshot.getChangedCell(k)];
+             if (oldId != -1) {
+                 leaving.add(oldId);
              }
+         }
 
-             if (!tileExists) {
-                 remove(entry.getValue());
-                 iterator.remove();
+         for (int k = 0; k < snapshot.getChangedCellCount(); k++) {
+             int cell = snapshot.getChangedCell(k);
+             int i = cell / width;
+             int j = cell % width;
+             int id = snapshot.getTileId(i, j);
+             shownIds[cell] = id;
+             if (id == -1) {
+                 continue;
+             }
+             leaving.remove(id);
+             int padding = 5;
+             int x = j * tileSize + padding;
+             int y = i * tileSize + padding;
+             TileGUI tileGUI = tiles.get(id);
+             if (tileGUI == null) {
+                 GridPosition pos = new GridPosition(i, j);
+                 tileGUI = new TileGUI(snapshot.getValue(i, j), pos, tileSize, id);
+                 tiles.put(id, tileGUI);
+                 tileGUI.setBounds(x, y, tileSize - 2 * padding, tileSize - 2 * padding);
+                 add(tileGUI, Integer.valueOf(1));
+             } else {
+                 tileGUI.setBounds(x, y, tileSize - 2 * padding, tileSize - 2 * padding);
+                 tileGUI.setValue(snapshot.getValue(i, j));
              }
          }
 
-         for (int i = 0; i < grid.getHeight(); i++) {
-             for (int j = 0; j < grid.getWidth(); j++) {
-                 Tile tile = grid.getTile(i, j);
-                 if (tile.getValue() != 0) {
-                     TileGUI tileGUI = tiles.get(tile.getId());
-                     if (tileGUI == null) {
-                         GridPosition pos = new GridPosition(i, j);
-                         tileGUI = new TileGUI(tile.getValue(), pos, tileSize, tile.getId(), grid);
-                         tiles.put(tile.getId(), tileGUI);
-
-                         int padding = 5;
-                         int x = j * tileSize + padding;
-                         int y = i * tileSize + padding;
-                         tileGUI.setBounds(x, y, tileSize - 2 * padding, tileSize - 2 * padding);
-
-                         add(tileGUI, Integer.valueOf(1));
-                     } else {
-                         int padding = 5;
-                         int x = j * tileSize + padding;
-                         int y = i * tileSize + padding;
-                         tileGUI.setBounds(x, y, tileSize - 2 * padding, tileSize - 2 * padding);
-                         tileGUI.setValue(tile.getValue());
-                     }
-                 }
-             }
+         for (int id : leaving) {
+             remove(tiles.remove(id));
          }
          revalidate();
          repaint();
      }
 
      /**
-      * Animates tile movements and merges based on the logical grid's changes
+      * Animates tile movements and merges of the move that led to a snapshot
       *
-      * - Retrieves tile movements from getMovements in the Grid class
+      * - Takes the tile movements and merged cells from the snapshot's MoveEvent
       * - Animates each tile's movement to its new position or triggers a merge effect
-      * - Handles cleanup of merged tiles and invokes onComplete after all animations finish
-      * - Creates temporary TileGUI objects for tiles that have merged and no longer exist
+      * - Runs every tile's animation in one AnimationClock batch
+      * - Shows the snapshot and invokes onComplete once after all animations finish
+      * - Creates temporary TileGUI objects for moving tiles that are not drawn yet
       *
       * Used to visually represent tile movements and merges after a game action
       */
-     public void animateTiles(Runnable onComplete) {
-         List<Movement> movements = grid.getMovements();
-         AtomicInteger animationsLeft = new AtomicInteger(movements.size());
-
-         if (animationsLeft.get() == 0) {
-             removeMergedTiles();
-             onComplete.run();
-             return;
+     @Override
+     public void animate(BoardSnapshot snapshot, Runnable onComplete) {
+         MoveEvent move = snapshot.getMove();
+         boolean[] mergedCells = new boolean[width * height];
+         for (GridPosition merge : move.getMerges()) {
+             mergedCells[merge.row * width + merge.col] = true;
          }
+         List<TileGUI> tempTiles = new ArrayList<>();
 
-         Runnable finalAction = () -> {
-             if (animationsLeft.decrementAndGet() == 0) {
-                 removeMergedTiles();
-                 onComplete.run();
+         AnimationClock.Batch batch = AnimationClock.get().batch(() -> {
+             animation = null;
+             for (TileGUI tempTileGUI : tempTiles) {
+                 remove(tempTileGUI);
              }
-         };
+             show(snapshot);
+             onComplete.run();
+         });
 
-         for (Movement movement : movements) {
+         for (Movement movement : move.getMovements()) {
+             // the merged tile keeps the id of one of the two, which is the one that pulses
+             boolean isMerge = mergedCells[movement.newPos.row * width + movement.newPos.col]
+                     && snapshot.getTileId(movement.newPos.row, movement.newPos.col) == movement.tileId;
              TileGUI tileGUI = tiles.get(movement.tileId);
              if (tileGUI != null) {
-                 tileGUI.animateMove(movement.newPos, tileSize,finalAction);
+                 tileGUI.animateMove(movement.newPos, tileSize, isMerge, batch);
              } else {
-                 TileGUI tempTileGUI = new TileGUI(movement.value, movement.oldPos, tileSize, movement.tileId, grid);
-                 tempTileGUI.setBounds(movement.oldPos.col * tileSize, movement.oldPos.row * tileSize, tileSize, tileSize);
+                 TileGUI tempTileGUI = new TileGUI(movement.value, movement.oldPos, tileSize, movement.tileId);
+                 int padding = 5;
+                 tempTileGUI.setBounds(movement.oldPos.col * tileSize + padding, movement.oldPos.row * tileSize + padding,
+                         tileSize - 2 * padding, tileSize - 2 * padding);
                  add(tempTileGUI, Integer.valueOf(1));
-                 tempTileGUI.animateMove(movement.newPos, tileSize, () -> {
-                     remove(tempTileGUI);
-                     finalAction.run();
-                 });
+                 tempTiles.add(tempTileGUI);
+                 tempTileGUI.animateMove(movement.newPos, tileSize, isMerge, batch);
              }
          }
+         animation = batch;
+         batch.start();
      }
 
-     /**
-      * Removes TileGUI objects from the visual grid that no longer exist in the logical grid
-      *
-      * - Iterates through the tiles map and checks if each TileGUI corresponds to a valid tile in the grid
-      * - Removes TileGUI's that no longer exist
-      *
-      * Used after moves to clean up merged tiles from the visual grid
-      */
-     private void removeMergedTiles() {
-         Iterator<Map.Entry<Integer, TileGUI>> iterator = tiles.entrySet().iterator();
-         while (iterator.hasNext()) {
-             Map.Entry<Integer, TileGUI> entry = iterator.next();
-             int tileId = entry.getKey();
-             boolean tileExists = false;
-
-             for (int i = 0; i < grid.getHeight(); i++) {
-                 for (int j = 0; j < grid.getWidth(); j++) {
-                     Tile tile = grid.getTile(i, j);
-                     if (tile.getValue() != 0 && tile.getId() == tileId) {
-                         tileExists = true;
-                         break;
-                     }
-                 }
-                 if (tileExists) break;
-             }
-
-             if (!tileExists) {
-                 remove(entry.getValue());
-                 iterator.remove();
-             }
+     @Override
+     public void finishAnimation() {
+         if (animation != null) {
+             animation.finish();
          }
-         revalidate();
-         repaint();
      }
 
      // Setters and Getters
 
-     public void setNewGrid(Controller newGrid) {
-         this.grid = newGrid;
-         createTiles();
+     @Override
+     public JComponent getComponent() {
+         return this;
      }
  }
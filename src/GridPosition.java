@@ -8,7 +8,7 @@
  */
 
 public class GridPosition {
-    int row, col;
+    final int row, col;
 
     public GridPosition(int row, int col) {
         this.row = row;
@@ -6,9 +6,10 @@ import java.io.Serializable;
  * Each Entry holds:
  * - a name
  * - a score
+ * - the width and height of the board the score was made on
  * 
- * Usage: These entries will be used in the leaderboard class which holds 10
- * entries at a time.
+ * Usage: These entries will be used in the leaderboard class, which ranks
+ * them separately for each board size.
  * 
  */
 public final class LeaderEntry implements Serializable {
@@ -16,10 +17,23 @@ public final class LeaderEntry implements Serializable {
 	private static final long serialVersionUID = 2L;
 	private String name;
 	private int score;
+	private int width;
+	private int height;
 
 	public LeaderEntry(String n, int s) {
+		this(n, s, 4, 4);
+	}
+
+	public LeaderEntry(String n, int s, int w, int h) {
 		name = n;
 		score = s;
+		width = w;
+		height = h;
+	}
+
+	// entries saved before board sizes were kept were all made on 4x4 boards
+	private Object readResolve() {
+		return width == 0 ? new LeaderEntry(name, score) : this;
 	}
 
 	/**
@@ -40,6 +54,24 @@ public final class LeaderEntry implements Serializable {
 		return name;
 	}
 
+	/**
+	 * Get board width for this entry.
+	 * 
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get board height for this entry.
+	 * 
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
 	@Override
 	public String toString() {
 		return name + " : " + score;
@@ -1,115 +1,45 @@
 import java.util.ArrayList;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-
+import java.util.List;
+
+/**
+ * The snapshot of the leaderboard kept in lb.ser.
+ *
+ * - Holds every score, each board size best first, and the last journal
+ *   record the snapshot includes
+ * - Written and read only by LeaderboardJournal; the game reads scores
+ *   through LeaderboardService
+ */
 public class Leaderboard implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 	private ArrayList<LeaderEntry> board;
-
-	public Leaderboard() {
-		board = new ArrayList<LeaderEntry>();
-		int valid = 0;
-
-		try (ObjectInputStream input = new ObjectInputStream(new FileInputStream("lb.ser"))) {
-			Leaderboard lb = (Leaderboard) input.readObject();
-			board = lb.getLeaderBoard();
-			valid = 1;
-		} catch (IOException | ClassNotFoundException e) {
-			e.printStackTrace();
-		}
-
-		// if no file is found, create a default leaderboard file
-		if (valid == 0) {
-			for (int i = 0; i < 10; i++) {
-				board.add(new LeaderEntry("--", 0));
-			}
-
-			try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("lb.ser"))) {
-				oos.writeObject(this);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-	}
-
-	/**
-	 * Gets the lowest score in the leaderboard.
-	 * 
-	 * @pre there are scores in the leaderboard
-	 * @post returns the lowest score
-	 * 
-	 * @return lowest score
-	 */
-	public int getLowestScore() {
-		return board.get(9).getScore();
-	}
+	// 0 in snapshots written before the journal existed
+	private long lastSequence;
 
 	/**
-	 * Gets the highest score in the leaderboard.
-	 * 
-	 * @pre there are scores in the leaderboard
-	 * @post returns the highest score
-	 * 
-	 * @return highest score
+	 * Creates a snapshot to be written to lb.ser.
+	 *
+	 * @param board        the entries, each board size best first
+	 * @param lastSequence the last journal record included in the entries
 	 */
-	public int getHighestScore() {
-		return board.get(0).getScore();
+	Leaderboard(ArrayList<LeaderEntry> board, long lastSequence) {
+		this.board = board;
+		this.lastSequence = lastSequence;
 	}
 
 	/**
-	 * Gets the leaderboard array list with the current top 10.
-	 * 
-	 * @pre there are 10 leaderboard entries
-	 * @post returns an array list of leaderboard entries
-	 * 
-	 * @return array list of leaderboard entries
+	 * @return the entries in this snapshot, each board size best first
 	 */
-	public ArrayList<LeaderEntry> getLeaderBoard() {
-		return new ArrayList<LeaderEntry>(board);
+	List<LeaderEntry> getEntries() {
+		return board;
 	}
 
 	/**
-	 * Updates the leaderboard entries based on a passed score.
-	 * 
-	 * @pre pass in a name and a score
-	 * @post updates the leaderboard with the new score
-	 * 
-	 * @param name  a name
-	 * @param score a score
+	 * @return the last journal record included in this snapshot
 	 */
-	public void update(String name, int score) {
-
-		int i = 9;
-
-		while (i >= 0 && board.get(i).getScore() < score) {
-			i--;
-		}
-
-		ArrayList<LeaderEntry> updatedBoard = new ArrayList<LeaderEntry>();
-
-		int j;
-		for (j = 0; j < i + 1; j++) {
-			updatedBoard.add(board.get(j));
-		}
-
-		updatedBoard.add(new LeaderEntry(name, score));
-
-		for (j++; j < 10; j++) {
-			updatedBoard.add(board.get(j - 1));
-		}
-
-		board = updatedBoard;
-
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("lb.ser"))) {
-			oos.writeObject(this);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	long getLastSequence() {
+		return lastSequence;
 	}
 
 	// testing method
@@ -123,4 +53,4 @@ public class Leaderboard implements Serializable {
 		}
 		return list;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Talks to a LeaderboardServer on this machine.
+ *
+ * - Every request is sent asynchronously, so the game never waits on the server
+ * - The shown entries of each board size are cached and fetched again after every
+ *   submit; until the first answer comes the cached list is empty
+ * - A score the server does not accept is submitted to the local LeaderboardService instead,
+ *   so it is not lost
+ *
+ * The game uses a client when started with -Dleaderboard.server=<port> (or localhost:<port>).
+ */
+
+public final class LeaderboardClient {
+    public static final String SERVER_PROPERTY = "leaderboard.server";
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private static volatile LeaderboardClient shared;
+    private static volatile boolean sharedChecked;
+
+    private final URI base;
+    private final HttpClient http;
+    private final ConcurrentHashMap<Integer, List<LeaderEntry>> shown = new ConcurrentHashMap<>();
+
+    /**
+     * @param port the port the server listens on at localhost
+     */
+    public LeaderboardClient(int port) {
+        base = URI.create("http://localhost:" + port);
+        http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    }
+
+    /**
+     * @return a client for the server named by the leaderboard.server system property, or null if it is not set
+     * @throws IllegalArgumentException if the property is not a port or localhost:port
+     */
+    public static LeaderboardClient fromSystemProperty() {
+        String value = System.getProperty(SERVER_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        String port = value.startsWith("localhost:") ? value.substring("localhost:".length()) : value;
+        try {
+            return new LeaderboardClient(Integer.parseInt(port));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(SERVER_PROPERTY + " must be a port or localhost:port, not " + value);
+        }
+    }
+
+    /**
+     * The client the game uses, read from the leaderboard.server system property the first time
+     *
+     * @return the shared client, or null if the game keeps its own leaderboard
+     */
+    public static LeaderboardClient shared() {
+        if (!sharedChecked) {
+            synchronized (LeaderboardClient.class) {
+                if (!sharedChecked) {
+                    shared = fromSystemProperty();
+                    sharedChecked = true;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Sends a score to the server
+     *
+     * @param playerName a name; null or blank becomes LeaderboardService.DEFAULT_NAME
+     * @param score      a score
+     * @param width      the board width
+     * @param height     the board height
+     * @return completes with true once the server accepted the score, false if it went to the local leaderboard
+     */
+    public CompletableFuture<Boolean> submit(String playerName, int score, int width, int height) {
+        String name = LeaderboardService.playerName(playerName);
+        String form = "name=" + URLEncoder.encode(name, StandardCharsets.UTF_8) + "&score=" + score
+                + "&width=" + width + "&height=" + height;
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/scores")).timeout(TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error == null && response.statusCode() == 202) {
+                        // the server only adds queued scores when it next flushes
+                        CompletableFuture.runAsync(() -> refresh(width, height), CompletableFuture.delayedExecutor(
+                                2 * LeaderboardServer.FLUSH_MILLIS, TimeUnit.MILLISECONDS));
+                        return true;
+                    }
+                    LeaderboardService.get().submit(name, score, width, height);
+                    return false;
+                });
+    }
+
+    /**
+     * @param k the most entries to fetch
+     * @return completes with the best k entries for the board size, highest first
+     */
+    public CompletableFuture<List<LeaderEntry>> fetchTop(int width, int height, int k) {
+        HttpRequest request = HttpRequest.newBuilder(
+                base.resolve("/top?width=" + width + "&height=" + height + "&k=" + k)).timeout(TIMEOUT).build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    List<LeaderEntry> entries = new ArrayList<>();
+                    if (response.statusCode() != 200) {
+                        return entries;
+                    }
+                    for (String line : response.body().split("\n")) {
+                        String[] fields = line.split(" ", 3);
+                        if (fields.length == 3) {
+                            entries.add(new LeaderEntry(URLDecoder.decode(fields[2], StandardCharsets.UTF_8),
+                                    Integer.parseInt(fields[1]), width, height));
+                        }
+                    }
+                    return entries;
+                });
+    }
+
+    /**
+     * @param score a score
+     * @return completes with the rank the score would get for the board size, or 0 if the server did not answer
+     */
+    public CompletableFuture<Integer> fetchRank(int width, int height, int score) {
+        HttpRequest request = HttpRequest.newBuilder(
+                base.resolve("/rank?width=" + width + "&height=" + height + "&score=" + score)).timeout(TIMEOUT).build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> response.statusCode() != 200 ? 0
+                        : Integer.parseInt(response.body().trim().split(" ")[0]));
+    }
+
+    /**
+     * Gets the cached entries shown for a board size, fetching them the first time
+     *
+     * @return at most LeaderboardService.SHOWN entries, highest first; empty until the server first answers
+     */
+    public List<LeaderEntry> getShown(int width, int height) {
+        List<LeaderEntry> entries = shown.get(key(width, height));
+        if (entries == null) {
+            shown.putIfAbsent(key(width, height), Collections.<LeaderEntry>emptyList());
+            refresh(width, height);
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+
+    private void refresh(int width, int height) {
+        fetchTop(width, height, LeaderboardService.SHOWN).thenAccept(
+                entries -> shown.put(key(width, height), Collections.unmodifiableList(entries)));
+    }
+
+    private static int key(int width, int height) {
+        return width << 16 | height;
+    }
+}
@@ -1,22 +1,34 @@
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.List;
 import javax.swing.table.DefaultTableModel;
 
 /**
  * Creates a GUI for the Leaderboard using a table.
  * 
  * - Shows Rank, Name, and Score
- * - Shows the top 10 scores in the current leaderboard.
+ * - Shows the top 10 scores for one board size, read from the shared LeaderboardService.
  * 
  */
 public class LeaderboardGUI extends JFrame {
 
-    private Controller controller;
+    private final int boardWidth;
+    private final int boardHeight;
 
     public LeaderboardGUI() {
+        this(4, 4);
+    }
+
+    /**
+     * Creates the window for the scores of one board size.
+     * 
+     * @param boardWidth  the board width
+     * @param boardHeight the board height
+     */
+    public LeaderboardGUI(int boardWidth, int boardHeight) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
         // Initialize window display settings
-        controller = new Controller(4, 4);
         setTitle("Leaderboard");
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setSize(900, 700); // Match game size
@@ -55,6 +67,13 @@ public class LeaderboardGUI extends JFrame {
         String[][] leaderboardData = getLeaderboardData();
         DefaultTableModel tableModel = new DefaultTableModel(leaderboardData, columnNames);
 
+        // When the scores live on a LeaderboardServer, fill the table in once it answers
+        LeaderboardClient client = LeaderboardClient.shared();
+        if (client != null) {
+            client.fetchTop(boardWidth, boardHeight, LeaderboardService.SHOWN).thenAccept(entries ->
+                    SwingUtilities.invokeLater(() -> tableModel.setDataVector(toRows(entries), columnNames)));
+        }
+
         // Create a JTable for the leaderboard and don't let it be edited
         JTable leaderboardTable = new JTable(tableModel) {
             @Override
@@ -92,15 +111,29 @@ public class LeaderboardGUI extends JFrame {
     }
 
     /**
-     * Turns the leaderboard data from the controller into a 2d array.
+     * Turns the leaderboard data from the leaderboard service, or the cached
+     * server data, into a 2d array.
      * 
-     * @pre the controller has leaderboard data
+     * @pre the leaderboard service has leaderboard data
      * @post the data will be turned into a 2d array
      * 
      * @return the 2d array of data
      */
     private String[][] getLeaderboardData() {
-        ArrayList<LeaderEntry> leaderboard = controller.getLeaderBoard();
+        LeaderboardClient client = LeaderboardClient.shared();
+        if (client != null) {
+            return toRows(client.getShown(boardWidth, boardHeight));
+        }
+        return toRows(LeaderboardService.get().getShown(boardWidth, boardHeight));
+    }
+
+    /**
+     * Turns leaderboard entries into table rows of rank, name and score.
+     * 
+     * @param leaderboard the entries, highest first
+     * @return the 2d array of data
+     */
+    private static String[][] toRows(List<LeaderEntry> leaderboard) {
         String[][] data = new String[leaderboard.size()][3];
 
         for (int i = 0; i < leaderboard.size(); i++) {
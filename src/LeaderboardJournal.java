@@ -0,0 +1,504 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the leaderboard on disk as a snapshot plus an append-only journal of the scores added since.
+ *
+ * - submit adds the score to the RankedLeaderboard in memory and queues a journal record,
+ *   so the caller never waits on the disk
+ * - A writer thread appends whatever has queued up with one write and one force (group commit)
+ * - Every COMPACT_EVERY records the ranking is written to lb.ser.tmp, forced, and renamed over lb.ser
+ *   atomically; only then is the journal emptied
+ * - Each record carries a sequence number and a CRC32, and the snapshot stores the last sequence it holds,
+ *   so loading replays only newer records and stops at the first torn or damaged one
+ * - Other processes may share the files: the writer holds a lock on the journal while it writes,
+ *   and a WatchService wakes it when the files change, so it reads only the records added
+ *   since it last looked, or reloads everything if someone else compacted
+ * - Submitters only share the read side of a StampedLock; the writer takes the write side for
+ *   a moment when it needs to know exactly which scores are still queued
+ *
+ * Journal record, big-endian:
+ *   int payloadLength, int crc32(payload),
+ *   payload = long sequence, int score, byte width, byte height, short nameLength, byte[] utf8Name
+ */
+
+final class LeaderboardJournal {
+    private static final int COMPACT_EVERY = 64;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int PAYLOAD_HEADER_BYTES = 8 + 4 + 1 + 1 + 2;
+    private static final int MAX_PAYLOAD_BYTES = PAYLOAD_HEADER_BYTES + 0xFFFF;
+    private static final Record END = new Record(-1L, new LeaderEntry("", 0));
+    private static final Record REFRESH = new Record(-1L, new LeaderEntry("", 0));
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final Thread writerThread;
+    private WatchService watcher;
+    private FileChannel channel;
+    private boolean closed;
+
+    // only used by the writer thread once it has started
+    private long readOffset;
+    private long diskSequence;
+    private Object snapshotStamp;
+    private int sinceCompaction;
+
+    // replaced by a new one when another process compacts the files
+    private volatile RankedLeaderboard ranking = new RankedLeaderboard();
+    private final AtomicLong order = new AtomicLong();
+    private final StampedLock submitting = new StampedLock();
+
+    /**
+     * Loads the snapshot and the journal, then starts the writer and watcher threads
+     *
+     * @param snapshotPath the snapshot file
+     * @param journalPath  the journal file
+     */
+    LeaderboardJournal(Path snapshotPath, Path journalPath) {
+        this.snapshotPath = snapshotPath;
+        this.journalPath = journalPath;
+        try {
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileLock lock = channel.lock();
+            try {
+                reload(Collections.<Record>emptyList());
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // keep scores in memory for this run only
+            channel = null;
+        }
+        writerThread = new Thread(this::drain, "leaderboard-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        startWatching();
+    }
+
+    /**
+     * @return every score, ranked; it is changed in place as scores are submitted
+     */
+    RankedLeaderboard getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Adds a score to the ranking in memory and queues it for the journal
+     *
+     * @param entry the score
+     */
+    void submit(LeaderEntry entry) {
+        // made first, so an entry that cannot be journaled never reaches the ranking either
+        Record record = new Record(0L, entry);
+        long stamp = submitting.readLock();
+        try {
+            ranking.add(entry, order.incrementAndGet());
+            if (!closed) {
+                queue.add(record);
+            }
+        } finally {
+            submitting.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes everything that was submitted, compacts, then closes the journal
+     */
+    void close() {
+        long stamp = submitting.writeLock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(END);
+        } finally {
+            submitting.unlockWrite(stamp);
+        }
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startWatching() {
+        if (channel == null) {
+            return;
+        }
+        Path directory = snapshotPath.toAbsolutePath().getParent();
+        try {
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            e.printStackTrace(); // changes made by other processes are then only seen on the next write
+            watcher = null;
+            return;
+        }
+        Thread watcherThread = new Thread(this::watch, "leaderboard-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Asks the writer to look at the files again whenever one of them changes. Our own
+     * writes wake it too; it then finds nothing new and goes back to sleep.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object changed = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || snapshotPath.getFileName().equals(changed) || journalPath.getFileName().equals(changed)) {
+                        if (refreshQueued.compareAndSet(false, true)) {
+                            queue.add(REFRESH);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void drain() {
+        List<Record> batch = new ArrayList<>();
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            done = batch.remove(END);
+            if (batch.remove(REFRESH)) {
+                refreshQueued.set(false);
+            }
+            if (channel != null) {
+                try {
+                    FileLock lock = channel.lock();
+                    try {
+                        catchUp(batch);
+                        append(batch);
+                        sinceCompaction += batch.size();
+                        if (sinceCompaction >= COMPACT_EVERY || (done && sinceCompaction > 0)) {
+                            compact();
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            batch.clear();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Brings the ranking up to date with the files: only the new journal records if the
+     * snapshot is the one we last saw, otherwise everything
+     *
+     * @pre the journal is locked
+     * @param pending the records taken off the queue but not written yet
+     */
+    private void catchUp(List<Record> pending) throws IOException {
+        if (!Objects.equals(snapshotStamp, stampOf(snapshotPath)) || channel.size() < readOffset) {
+            reload(pending);
+        } else {
+            readOffset = readJournal(ranking, readOffset);
+        }
+    }
+
+    /**
+     * Builds a new ranking from the snapshot and the journal, adds the scores that are not on disk yet,
+     * and swaps it in
+     *
+     * @pre the journal is locked
+     * @param pending the records taken off the queue but not written yet
+     */
+    private void reload(List<Record> pending) throws IOException {
+        RankedLeaderboard loaded = new RankedLeaderboard();
+        diskSequence = 0;
+        loadSnapshot(loaded);
+        readOffset = readJournal(loaded, 0);
+        long stamp = submitting.writeLock();
+        try {
+            for (Record record : pending) {
+                loaded.add(record.entry, order.incrementAndGet());
+            }
+            for (Record record : queue) {
+                if (record != END && record != REFRESH) {
+                    loaded.add(record.entry, order.incrementAndGet());
+                }
+            }
+            ranking = loaded;
+        } finally {
+            submitting.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds the snapshot's entries to the ranking in the order they were saved, so
+     * equal scores keep their order
+     */
+    private void loadSnapshot(RankedLeaderboard into) throws IOException {
+        snapshotStamp = stampOf(snapshotPath);
+        try (InputStream in = Files.newInputStream(snapshotPath);
+                ObjectInputStream input = new ObjectInputStream(in)) {
+            Leaderboard snapshot = (Leaderboard) input.readObject();
+            for (LeaderEntry entry : snapshot.getEntries()) {
+                // the old fixed top 10 was padded with "--" entries, and could hold entries without a name
+                if (!(entry.getScore() == 0 && "--".equals(entry.getName()))) {
+                    into.add(entry, order.incrementAndGet());
+                }
+            }
+            diskSequence = snapshot.getLastSequence();
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (ClassNotFoundException e) {
+            throw new IOException(snapshotPath + " is not a leaderboard", e);
+        }
+    }
+
+    /**
+     * Adds the journal records from the given offset that are newer than the snapshot, stopping
+     * at the first one that is cut short or fails its CRC, and cuts the journal off there so
+     * new records are not appended after a damaged one
+     *
+     * @pre the journal is locked
+     * @return the offset after the last good record
+     */
+    private long readJournal(RankedLeaderboard into, long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            if (length < PAYLOAD_HEADER_BYTES || length > MAX_PAYLOAD_BYTES
+                    || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            Record record = Record.decode(payload);
+            if (record == null) {
+                break;
+            }
+            if (record.sequence > diskSequence) {
+                into.add(record.entry, order.incrementAndGet());
+                diskSequence = record.sequence;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(false);
+        }
+        return position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(journalPath + " ended while reading a record");
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of records after the last record read, with a single write and force
+     *
+     * @pre the journal is locked and caught up
+     */
+    private void append(List<Record> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int bytes = 0;
+        for (Record record : batch) {
+            bytes += RECORD_HEADER_BYTES + record.payloadSize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        CRC32 crc = new CRC32();
+        for (Record record : batch) {
+            int start = buffer.position();
+            buffer.position(start + RECORD_HEADER_BYTES);
+            record.encode(buffer, ++diskSequence);
+            int length = buffer.position() - start - RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(buffer.array(), start + RECORD_HEADER_BYTES, length);
+            buffer.putInt(start, length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            readOffset += channel.write(buffer, readOffset);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Writes every score that is on disk to a new snapshot, renames it over the old one,
+     * then empties the journal. The scores still queued are left out; they are written
+     * to the journal after the snapshot.
+     *
+     * @pre the journal is locked and caught up
+     */
+    private void compact() throws IOException {
+        List<LeaderEntry> entries;
+        long stamp = submitting.writeLock();
+        try {
+            Set<LeaderEntry> queued = Collections.newSetFromMap(new IdentityHashMap<LeaderEntry, Boolean>());
+            for (Record record : queue) {
+                queued.add(record.entry);
+            }
+            entries = ranking.entries();
+            entries.removeIf(queued::contains);
+        } finally {
+            submitting.unlockWrite(stamp);
+        }
+
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(out);
+            ObjectOutputStream oos = new ObjectOutputStream(stream);
+            oos.writeObject(new Leaderboard(new ArrayList<LeaderEntry>(entries), diskSequence));
+            oos.flush();
+            out.force(true);
+        }
+        try {
+            Files.move(temp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // if this fails the journal still holds everything, so nothing is lost
+        snapshotStamp = stampOf(snapshotPath);
+        channel.truncate(0);
+        channel.force(false);
+        readOffset = 0;
+        sinceCompaction = 0;
+    }
+
+    /**
+     * @return something that changes whenever the file is replaced or rewritten, null if it does not exist
+     */
+    private static Object stampOf(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One score in the journal; the sequence is only known once the record has been read back
+     */
+    private static final class Record {
+        final long sequence;
+        final LeaderEntry entry;
+        private final byte[] nameBytes;
+
+        /**
+         * @throws NullPointerException if the entry has no name
+         */
+        Record(long sequence, LeaderEntry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+            byte[] bytes = Objects.requireNonNull(entry.getName(), "name").getBytes(StandardCharsets.UTF_8);
+            nameBytes = bytes.length > 0xFFFF ? Arrays.copyOf(bytes, 0xFFFF) : bytes;
+        }
+
+        int payloadSize() {
+            return PAYLOAD_HEADER_BYTES + nameBytes.length;
+        }
+
+        void encode(ByteBuffer buffer, long sequence) {
+            buffer.putLong(sequence);
+            buffer.putInt(entry.getScore());
+            buffer.put((byte) entry.getWidth());
+            buffer.put((byte) entry.getHeight());
+            buffer.putShort((short) nameBytes.length);
+            buffer.put(nameBytes);
+        }
+
+        /**
+         * @return the record in the payload, or null if its lengths do not add up
+         */
+        static Record decode(ByteBuffer payload) {
+            long sequence = payload.getLong(0);
+            int score = payload.getInt(8);
+            int width = payload.get(12) & 0xFF;
+            int height = payload.get(13) & 0xFF;
+            int nameLength = payload.getShort(14) & 0xFFFF;
+            if (PAYLOAD_HEADER_BYTES + nameLength != payload.capacity()) {
+                return null;
+            }
+            String name = new String(payload.array(), PAYLOAD_HEADER_BYTES, nameLength, StandardCharsets.UTF_8);
+            return new Record(sequence, new LeaderEntry(name, score, width, height));
+        }
+    }
+}
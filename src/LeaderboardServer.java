@@ -0,0 +1,321 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the leaderboard over HTTP so several game instances on one machine share it.
+ *
+ * - POST /scores with name, score, width and height as form fields queues a score and answers 202 at once;
+ *   every FLUSH_MILLIS the queued scores go to LeaderboardService together, so they reach the journal
+ *   in one group commit
+ * - GET /top?width=4&height=4&k=10 answers one "rank score name" line per entry, the name URL-encoded
+ * - GET /rank?width=4&height=4&score=1234 answers "rank percentile count"
+ * - Reads are served from an immutable snapshot behind an AtomicReference that is replaced after
+ *   each flush, so they never take a lock or wait for a flush
+ * - Requests run on virtual threads when the JVM has them, otherwise on a cached pool
+ *
+ * The server only listens on the loopback address. LeaderboardClient talks to it.
+ *
+ * Usage:
+ *   java -cp bin LeaderboardServer [--port 2048]
+ */
+
+public class LeaderboardServer {
+    public static final int DEFAULT_PORT = 2048;
+    static final long FLUSH_MILLIS = 100;
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private final LeaderboardService service;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentLinkedQueue<LeaderEntry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Map<Integer, Ranking>> snapshot = new AtomicReference<>(new HashMap<>());
+
+    /**
+     * Binds the server to the loopback address; call start to begin serving
+     *
+     * @param service the leaderboard scores are read from and submitted to
+     * @param port    the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public LeaderboardServer(LeaderboardService service, int port) throws IOException {
+        this.service = service;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/scores", this::handleSubmit);
+        server.createContext("/top", this::handleTop);
+        server.createContext("/rank", this::handleRank);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "leaderboard-server-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts answering requests and flushing submitted scores
+     */
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * Stops answering requests and hands the scores still queued to the leaderboard
+     */
+    public void stop() {
+        server.stop(0);
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Virtual threads are looked up by reflection so the game still builds for Java 17
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "leaderboard-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Submits every queued score, then publishes new rankings for the board sizes that changed,
+     * here or through the service, e.g. when another process wrote to the files
+     */
+    private void flush() {
+        Set<Integer> changed = new HashSet<>();
+        LeaderEntry entry;
+        while ((entry = pending.poll()) != null) {
+            service.submit(entry.getName(), entry.getScore(), entry.getWidth(), entry.getHeight());
+            changed.add(key(entry.getWidth(), entry.getHeight()));
+        }
+        for (Map.Entry<Integer, Ranking> published : snapshot.get().entrySet()) {
+            int key = published.getKey();
+            if (published.getValue().entries.length != service.size(key >>> 16, key & 0xFFFF)) {
+                changed.add(key);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Integer, Ranking> rebuilt = new HashMap<>();
+        for (int key : changed) {
+            rebuilt.put(key, Ranking.of(service.getTop(key >>> 16, key & 0xFFFF, Integer.MAX_VALUE)));
+        }
+        snapshot.updateAndGet(current -> {
+            Map<Integer, Ranking> next = new HashMap<>(current);
+            next.putAll(rebuilt);
+            return next;
+        });
+    }
+
+    /**
+     * The published ranking of a board size, loading it from the service the first time it is asked for
+     */
+    private Ranking ranking(int width, int height) {
+        int key = key(width, height);
+        Map<Integer, Ranking> current = snapshot.get();
+        Ranking ranking = current.get(key);
+        while (ranking == null) {
+            Ranking loaded = Ranking.of(service.getTop(width, height, Integer.MAX_VALUE));
+            Map<Integer, Ranking> next = new HashMap<>(current);
+            next.put(key, loaded);
+            if (snapshot.compareAndSet(current, next)) {
+                ranking = loaded;
+            } else {
+                current = snapshot.get();
+                ranking = current.get(key);
+            }
+        }
+        return ranking;
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, "use POST\n");
+            return;
+        }
+        Map<String, String> form;
+        try (InputStream body = exchange.getRequestBody()) {
+            form = parseQuery(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        try {
+            String name = form.getOrDefault("name", "");
+            if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("name must be 1 to " + MAX_NAME_LENGTH + " characters");
+            }
+            pending.add(new LeaderEntry(name, intParam(form, "score"), intParam(form, "width"),
+                    intParam(form, "height")));
+            respond(exchange, 202, "accepted\n");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+        }
+    }
+
+    private void handleTop(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int k = query.containsKey("k") ? intParam(query, "k") : LeaderboardService.SHOWN;
+            Ranking ranking = ranking(intParam(query, "width"), intParam(query, "height"));
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < Math.min(k, ranking.entries.length); i++) {
+                LeaderEntry entry = ranking.entries[i];
+                body.append(i + 1).append(' ').append(entry.getScore()).append(' ')
+                        .append(URLEncoder.encode(entry.getName(), StandardCharsets.UTF_8)).append('\n');
+            }
+            respond(exchange, 200, body.toString());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+        }
+    }
+
+    private void handleRank(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            Ranking ranking = ranking(intParam(query, "width"), intParam(query, "height"));
+            int score = intParam(query, "score");
+            int above = ranking.countAbove(score);
+            int below = ranking.entries.length - ranking.countAbove(score - 1);
+            double percentile = ranking.entries.length == 0 ? 100.0 : 100.0 * below / ranking.entries.length;
+            respond(exchange, 200, (above + 1) + " " + percentile + " " + ranking.entries.length + "\n");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage() + "\n");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0 || ((name.equals("width") || name.equals("height")) && parsed > 255)) {
+                throw new IllegalArgumentException(name + " is out of range");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    private static int key(int width, int height) {
+        return width << 16 | height;
+    }
+
+    /**
+     * The entries of one board size at the last flush, best first, with their scores
+     * in an array for binary search
+     */
+    private static final class Ranking {
+        final LeaderEntry[] entries;
+        private final int[] scores;
+
+        private Ranking(LeaderEntry[] entries) {
+            this.entries = entries;
+            scores = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                scores[i] = entries[i].getScore();
+            }
+        }
+
+        static Ranking of(List<LeaderEntry> entries) {
+            return new Ranking(entries.toArray(new LeaderEntry[0]));
+        }
+
+        /**
+         * @return the number of entries scoring more than the given score
+         */
+        int countAbove(int score) {
+            int low = 0;
+            int high = scores.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (scores[middle] > score) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[i + 1]);
+            }
+        }
+        LeaderboardService service = LeaderboardService.get();
+        LeaderboardServer server = new LeaderboardServer(service, port);
+        service.beforeClose(server::stop);
+        server.start();
+        System.out.println("Leaderboard server listening on port " + server.getPort());
+    }
+}
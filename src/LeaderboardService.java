@@ -0,0 +1,165 @@
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The one leaderboard of the process, shared by every game and window.
+ *
+ * - lb.ser and lb.journal are read the first time get() is called, never again on the
+ *   game's own account; changes made by other processes are picked up by LeaderboardJournal
+ * - The entries shown for a board size are an unmodifiable list that is only rebuilt after
+ *   a score for that size comes in, so reading them copies nothing
+ * - submit returns at once; the score is written on a background thread
+ */
+
+public final class LeaderboardService {
+    /** The number of entries the leaderboard window shows */
+    public static final int SHOWN = 10;
+    /** The name a score is kept under when the player gives none */
+    public static final String DEFAULT_NAME = "User";
+
+    private final LeaderboardJournal journal;
+    private final ConcurrentHashMap<Integer, Shown> shown = new ConcurrentHashMap<>();
+    private final List<Runnable> closing = new CopyOnWriteArrayList<>();
+
+    private static final class Holder {
+        static final LeaderboardService INSTANCE = open();
+
+        private static LeaderboardService open() {
+            LeaderboardService service = new LeaderboardService(
+                    new LeaderboardJournal(Paths.get("lb.ser"), Paths.get("lb.journal")));
+            Runtime.getRuntime().addShutdownHook(new Thread(service::close, "leaderboard-writer-shutdown"));
+            return service;
+        }
+    }
+
+    private LeaderboardService(LeaderboardJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the shared leaderboard, loaded on first use and flushed when the program exits
+     */
+    public static LeaderboardService get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Gets the entries shown for a board size.
+     *
+     * @param width  the board width
+     * @param height the board height
+     * @return at most SHOWN entries, highest first; the list cannot be changed
+     */
+    public List<LeaderEntry> getShown(int width, int height) {
+        RankedLeaderboard ranking = journal.getRanking();
+        int size = ranking.size(width, height);
+        Integer key = width << 16 | height;
+        Shown cached = shown.get(key);
+        if (cached == null || cached.ranking != ranking || cached.size != size) {
+            cached = new Shown(ranking, size, Collections.unmodifiableList(ranking.top(width, height, SHOWN)));
+            shown.put(key, cached);
+        }
+        return cached.entries;
+    }
+
+    /**
+     * Gets the lowest score shown for a board size, which a new score has to beat to be shown.
+     *
+     * @return the lowest shown score, 0 if fewer than SHOWN are kept
+     */
+    public int getLowestScore(int width, int height) {
+        List<LeaderEntry> entries = getShown(width, height);
+        return entries.size() < SHOWN ? 0 : entries.get(SHOWN - 1).getScore();
+    }
+
+    /**
+     * @return the highest score for a board size, 0 if there is none
+     */
+    public int getHighestScore(int width, int height) {
+        return journal.getRanking().getHighestScore(width, height);
+    }
+
+    /**
+     * @param k the most entries to return
+     * @return the best k entries for a board size, highest first
+     */
+    public List<LeaderEntry> getTop(int width, int height, int k) {
+        return Collections.unmodifiableList(journal.getRanking().top(width, height, k));
+    }
+
+    /**
+     * @return the rank a score would get for a board size: one more than the number of higher scores
+     */
+    public int getRank(int width, int height, int score) {
+        return journal.getRanking().rankOf(width, height, score);
+    }
+
+    /**
+     * @return the percentage of scores for a board size that are lower than the score, 100 if there are none
+     */
+    public double getPercentile(int width, int height, int score) {
+        return journal.getRanking().percentile(width, height, score);
+    }
+
+    /**
+     * @return the number of scores kept for a board size
+     */
+    public int size(int width, int height) {
+        return journal.getRanking().size(width, height);
+    }
+
+    /**
+     * Adds a score to the leaderboard of its board size without waiting on the disk.
+     *
+     * @param name   a name; null or blank, e.g. from a cancelled name dialog, becomes DEFAULT_NAME
+     * @param score  a score
+     * @param width  the board width
+     * @param height the board height
+     */
+    public void submit(String name, int score, int width, int height) {
+        journal.submit(new LeaderEntry(playerName(name), score, width, height));
+    }
+
+    /**
+     * @param name a name the player typed, or null
+     * @return the name, or DEFAULT_NAME if it is null or blank
+     */
+    public static String playerName(String name) {
+        return name == null || name.isBlank() ? DEFAULT_NAME : name;
+    }
+
+    /**
+     * Runs a task when the program exits, before the journal is flushed and closed,
+     * so the task can still submit scores
+     *
+     * @param task the task
+     */
+    void beforeClose(Runnable task) {
+        closing.add(task);
+    }
+
+    private void close() {
+        for (Runnable task : closing) {
+            task.run();
+        }
+        journal.close();
+    }
+
+    /**
+     * The shown entries of one board size and the ranking size they were taken at
+     */
+    private static final class Shown {
+        final RankedLeaderboard ranking;
+        final int size;
+        final List<LeaderEntry> entries;
+
+        Shown(RankedLeaderboard ranking, int size, List<LeaderEntry> entries) {
+            this.ranking = ranking;
+            this.size = size;
+            this.entries = entries;
+        }
+    }
+}
@@ -7,7 +7,6 @@ import javax.swing.Timer; // For the Timer
 import java.awt.event.ActionListener;
 
 public class MainMenu extends JFrame {
-    private Sound menuSoundtrack;
     private Timer titleFlasher;
     private JLabel titleLabel;
 
@@ -23,9 +22,8 @@ public class MainMenu extends JFrame {
         mainPanel.setLayout(new BorderLayout());
 
         // Add music
-        menuSoundtrack = new Sound("audio/mainmenusong.wav");
-        menuSoundtrack.setVolume(-20.0f);
-        menuSoundtrack.loop();
+        MusicPlayer.get().setVolume(-20.0f);
+        MusicPlayer.get().play(MusicPlayer.MENU_TRACK);
 
         // Resized title label
         titleLabel = createResizedLabel("images/d2048logo.png", 300, 100);
@@ -45,6 +43,7 @@ public class MainMenu extends JFrame {
 
         startGameButton.addActionListener(e -> {
             cleanup();
+            MusicPlayer.get().play(MusicPlayer.GAME_TRACK);
             new GUIView();
             dispose();
         });
@@ -150,7 +149,6 @@ public class MainMenu extends JFrame {
     }
 
     private void cleanup() {
-        menuSoundtrack.stop();
         if (titleFlasher != null) {
             titleFlasher.stop();
         }
@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A move policy that scores each direction by playing random games to the end.
+ *
+ * - Every playout starts from an ArrayGrid copy of the position, so no Tile objects are made
+ * - Playouts are split into ForkJoin tasks; each task owns its random source and its
+ *   board, and returns plain sums that are added up when the tasks join, so no locks are taken
+ * - The direction with the highest average final score wins
+ *
+ * Works with boards of any size.
+ */
+
+public class MonteCarloPlayer implements MovePolicy {
+    private static final int PLAYOUTS_PER_TASK = 64;
+
+    private final ForkJoinPool pool;
+    private final int playouts;
+    private final SplittableRandomSource seeds;
+
+    /**
+     * Create a player that uses the common ForkJoinPool
+     *
+     * @param playouts the number of random games played for every direction
+     */
+    public MonteCarloPlayer(int playouts) {
+        this(ForkJoinPool.commonPool(), playouts, new SplittableRandomSource());
+    }
+
+    /**
+     * @param pool     the pool the playouts run on
+     * @param playouts the number of random games played for every direction
+     * @param seeds    the source the per-task sources are split from
+     */
+    public MonteCarloPlayer(ForkJoinPool pool, int playouts, SplittableRandomSource seeds) {
+        this.pool = pool;
+        this.playouts = playouts;
+        this.seeds = seeds;
+    }
+
+    @Override
+    public Direction bestMove(GameEngine game) {
+        double[] scores = evaluate(game);
+        Direction best = null;
+        for (int d = 0; d < scores.length; d++) {
+            if (!Double.isNaN(scores[d]) && (best == null || scores[d] > scores[best.ordinal()])) {
+                best = Direction.fromOrdinal(d);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays the random games for one position.
+     *
+     * @param game the position to score, only read before the playouts start
+     * @return the average final score for each direction by ordinal, NaN where the direction does not move
+     */
+    public double[] evaluate(GameEngine game) {
+        ArrayGrid start = new ArrayGrid(game);
+        PlayoutTask task = new PlayoutTask(start, 0, playouts * 4, split());
+        long[] totals = pool.invoke(task);
+        double[] scores = new double[4];
+        for (int d = 0; d < 4; d++) {
+            scores[d] = totals[d + 4] == 0 ? Double.NaN : (double) totals[d] / totals[d + 4];
+        }
+        return scores;
+    }
+
+    /**
+     * Chooses moves for many positions at once, e.g. for a batch of games stepped together.
+     *
+     * @param games the positions, only read before the playouts start
+     * @return the chosen direction for each position, null where no direction moves
+     */
+    public List<Direction> bestMoves(List<? extends GameEngine> games) {
+        List<Direction> moves = new ArrayList<>(games.size());
+        for (GameEngine game : games) {
+            moves.add(bestMove(game));
+        }
+        return moves;
+    }
+
+    /**
+     * Plays a whole game with this policy.
+     *
+     * @param game the game to play, changed in place until it is over
+     * @return the number of moves made
+     */
+    public int play(GameEngine game) {
+        int moves = 0;
+        Direction direction;
+        while (!game.isOver() && (direction = bestMove(game)) != null) {
+            game.slide(direction);
+            moves++;
+        }
+        return moves;
+    }
+
+    private synchronized SplittableRandomSource split() {
+        return seeds.split();
+    }
+
+    /**
+     * Plays the playouts numbered [from, to); playout i starts with direction i % 4.
+     * Returns totals[0..3] = summed final scores and totals[4..7] = number of
+     * playouts where the first move was legal, by direction.
+     */
+    private static final class PlayoutTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayGrid start;
+        private final int from;
+        private final int to;
+        private final SplittableRandomSource random;
+
+        PlayoutTask(ArrayGrid start, int from, int to, SplittableRandomSource random) {
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > PLAYOUTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PlayoutTask left = new PlayoutTask(start, from, middle, random.split());
+                PlayoutTask right = new PlayoutTask(start, middle, to, random.split());
+                left.fork();
+                long[] totals = right.compute();
+                long[] other = left.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += other[i];
+                }
+                return totals;
+            }
+
+            long[] totals = new long[8];
+            ArrayGrid board = new ArrayGrid(start.getWidth(), start.getHeight());
+            for (int i = from; i < to; i++) {
+                int first = i & 3;
+                board.copyFrom(start);
+                if (!board.shift(Direction.fromOrdinal(first))) {
+                    continue;
+                }
+                board.addRandom(random);
+                playOut(board);
+                totals[first] += board.getPoints();
+                totals[first + 4]++;
+            }
+            return totals;
+        }
+
+        private void playOut(ArrayGrid board) {
+            while (true) {
+                int offset = random.nextInt(4);
+                boolean moved = false;
+                for (int k = 0; k < 4 && !moved; k++) {
+                    moved = board.shift(Direction.fromOrdinal((offset + k) & 3));
+                }
+                if (!moved) {
+                    return;
+                }
+                board.addRandom(random);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.List;
+
+/**
+ * What one move did to the board, handed to every MoveListener once the move is made.
+ *
+ * - The tiles that moved and the cells where two tiles merged; both are empty unless the
+ *   board is the Tile based Grid, the only engine that knows its tiles apart
+ * - The tile added after the move, the points it scored and the points after it
+ * - Whether the move ended the game, and whether it made the first 2048 tile
+ *
+ * Immutable, so it can be kept or handed to other threads: the lists are copies that cannot
+ * be changed, and Movement and GridPosition only have final fields.
+ */
+
+public final class MoveEvent {
+    private final Direction direction;
+    private final List<Movement> movements;
+    private final List<GridPosition> merges;
+    private final int spawnRow;
+    private final int spawnCol;
+    private final int spawnValue;
+    private final int scoreDelta;
+    private final int points;
+    private final boolean gameOver;
+    private final boolean won;
+
+    /**
+     * @param direction  the direction the board was slid in
+     * @param movements  the tiles that moved
+     * @param merges     the cells where two tiles merged
+     * @param spawnRow   the row of the added tile, -1 if none was added
+     * @param spawnCol   the column of the added tile, -1 if none was added
+     * @param spawnValue the value of the added tile, 0 if none was added
+     * @param scoreDelta the points the move scored
+     * @param points     the points after the move
+     * @param gameOver   true if no move is possible after this one
+     * @param won        true if this move made the first 2048 tile
+     */
+    MoveEvent(Direction direction, List<Movement> movements, List<GridPosition> merges, int spawnRow,
+            int spawnCol, int spawnValue, int scoreDelta, int points, boolean gameOver, boolean won) {
+        this.direction = direction;
+        this.movements = List.copyOf(movements);
+        this.merges = List.copyOf(merges);
+        this.spawnRow = spawnRow;
+        this.spawnCol = spawnCol;
+        this.spawnValue = spawnValue;
+        this.scoreDelta = scoreDelta;
+        this.points = points;
+        this.gameOver = gameOver;
+        this.won = won;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return every tile that moved or merged, from its old cell to its new one
+     */
+    public List<Movement> getMovements() {
+        return movements;
+    }
+
+    /**
+     * @return the cells that now hold a tile made from two
+     */
+    public List<GridPosition> getMerges() {
+        return merges;
+    }
+
+    /**
+     * @return the row of the tile added after the move, -1 if none was added
+     */
+    public int getSpawnRow() {
+        return spawnRow;
+    }
+
+    /**
+     * @return the column of the tile added after the move, -1 if none was added
+     */
+    public int getSpawnCol() {
+        return spawnCol;
+    }
+
+    /**
+     * @return the value of the tile added after the move, 0 if none was added
+     */
+    public int getSpawnValue() {
+        return spawnValue;
+    }
+
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    /**
+     * @return the points after the move
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return true if the move ended the game
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * @return true if the move made the first 2048 tile of the game
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    @Override
+    public String toString() {
+        return "MoveEvent{" + direction + ", moved=" + movements.size() + ", merged=" + merges.size()
+                + ", spawn=" + spawnValue + "@" + spawnRow + "," + spawnCol + ", +" + scoreDelta
+                + ", points=" + points + (gameOver ? ", over" : "") + (won ? ", won" : "") + "}";
+    }
+}
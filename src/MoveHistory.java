@@ -0,0 +1,254 @@
+/**
+ * Undo and redo history for one game, a few bytes per move.
+ *
+ * - Every move is one packed long in a ring: direction, spawn cell, spawn value and score delta
+ * - Every KEYFRAME_INTERVAL moves the whole board is stored as packed 5-bit exponents
+ * - A position is rebuilt from the keyframe at or before it plus at most
+ *   KEYFRAME_INTERVAL - 1 replayed moves, so undo and redo cost the same at any depth
+ * - The ring doubles when it fills up, until maxMoves; after that the oldest
+ *   keyframe and its moves are forgotten
+ *
+ * Moves are replayed with their recorded spawns, so no random numbers are drawn.
+ */
+
+public class MoveHistory {
+    public static final int KEYFRAME_INTERVAL = 32;
+    private static final int DEFAULT_MAX_MOVES = 1 << 20;
+    private static final int INITIAL_MOVES = KEYFRAME_INTERVAL * 4;
+
+    // delta layout: bits 0-1 direction, 2-17 spawn cell, 18-22 spawn exponent (0 = none), 32-63 score delta
+    private static final int SPAWN_CELL_SHIFT = 2;
+    private static final int SPAWN_EXPONENT_SHIFT = 18;
+    private static final int SCORE_SHIFT = 32;
+
+    private final int width;
+    private final int height;
+    private final int frameWords;
+    private final int maxMoves;
+    private long[] deltas;
+    private long[] frames;
+    private int[] framePoints;
+    private int frameSlots;
+
+    // absolute move numbers: base is the oldest position kept, top the newest one that can be redone
+    private long base;
+    private long current;
+    private long top;
+
+    private final ArrayGrid scratch;
+    private long scratchPosition = -1;
+
+    /**
+     * Create an empty history for boards of the given size
+     *
+     * @param width  the board width
+     * @param height the board height
+     */
+    public MoveHistory(int width, int height) {
+        this(width, height, DEFAULT_MAX_MOVES);
+    }
+
+    /**
+     * Create an empty history for boards of the given size
+     *
+     * @pre width * height <= 65536
+     * @param width    the board width
+     * @param height   the board height
+     * @param maxMoves the most moves kept before the oldest are forgotten, rounded up
+     *                 to a multiple of KEYFRAME_INTERVAL
+     */
+    public MoveHistory(int width, int height, int maxMoves) {
+        assert width * height <= 1 << (SPAWN_EXPONENT_SHIFT - SPAWN_CELL_SHIFT);
+        this.width = width;
+        this.height = height;
+        this.maxMoves = Math.max(INITIAL_MOVES,
+                (maxMoves + KEYFRAME_INTERVAL - 1) / KEYFRAME_INTERVAL * KEYFRAME_INTERVAL);
+        frameWords = PackedRows.wordsFor(width * height);
+        scratch = new ArrayGrid(width, height);
+        allocate(INITIAL_MOVES);
+    }
+
+    /**
+     * Forgets every move and starts again from the given board
+     *
+     * @param board the position undo stops at
+     */
+    public void reset(GameEngine board) {
+        base = 0;
+        current = 0;
+        top = 0;
+        scratchPosition = -1;
+        storeFrame(0, board);
+    }
+
+    /**
+     * Adds a move after the current position and forgets anything that could be redone
+     *
+     * @param direction  the direction the board was slid in
+     * @param spawnIndex the cell of the new tile as row * width + col, -1 if none was added
+     * @param spawnValue the value of the new tile
+     * @param scoreDelta the points the move scored
+     * @param after      the board after the move, stored if this position gets a keyframe
+     */
+    public void record(Direction direction, int spawnIndex, int spawnValue, int scoreDelta, GameEngine after) {
+        top = current;
+        if (current - base == deltas.length) {
+            if (deltas.length < maxMoves) {
+                allocate(Math.min(maxMoves, deltas.length * 2));
+            } else {
+                base += KEYFRAME_INTERVAL;
+            }
+        }
+        long delta = direction.ordinal()
+                | (long) (spawnIndex < 0 ? 0 : spawnIndex) << SPAWN_CELL_SHIFT
+                | (long) (spawnIndex < 0 ? 0 : Integer.numberOfTrailingZeros(spawnValue)) << SPAWN_EXPONENT_SHIFT
+                | (long) scoreDelta << SCORE_SHIFT;
+        deltas[deltaSlot(current)] = delta;
+        current++;
+        top = current;
+        if (scratchPosition >= current) {
+            scratchPosition = -1;
+        }
+        if (current % KEYFRAME_INTERVAL == 0) {
+            storeFrame(current, after);
+        }
+    }
+
+    public boolean canUndo() {
+        return current > base;
+    }
+
+    public boolean canRedo() {
+        return current < top;
+    }
+
+    /**
+     * Steps one move back and puts that position on the given engine
+     *
+     * @param engine the engine to restore, its tiles are replaced
+     * @return false if there was nothing to undo
+     */
+    public boolean undo(GameEngine engine) {
+        if (!canUndo()) {
+            return false;
+        }
+        current--;
+        restore(engine);
+        return true;
+    }
+
+    /**
+     * Steps one undone move forward again and puts that position on the given engine
+     *
+     * @param engine the engine to restore, its tiles are replaced
+     * @return false if there was nothing to redo
+     */
+    public boolean redo(GameEngine engine) {
+        if (!canRedo()) {
+            return false;
+        }
+        current++;
+        restore(engine);
+        return true;
+    }
+
+    /**
+     * @return the number of moves that can be undone
+     */
+    public int size() {
+        return (int) (current - base);
+    }
+
+    private void restore(GameEngine engine) {
+        seek(current);
+        engine.loadState(scratch.toArray(), scratch.getPoints());
+    }
+
+    /**
+     * Brings the scratch board to the given position, replaying forward from where it
+     * is if that is close, otherwise from the keyframe at or before the position
+     */
+    private void seek(long position) {
+        if (scratchPosition < base || scratchPosition > position
+                || position - scratchPosition >= KEYFRAME_INTERVAL) {
+            long frame = position - position % KEYFRAME_INTERVAL;
+            loadFrame(frame);
+            scratchPosition = frame;
+        }
+        while (scratchPosition < position) {
+            replay(deltas[deltaSlot(scratchPosition)]);
+            scratchPosition++;
+        }
+    }
+
+    private void replay(long delta) {
+        int pointsBefore = scratch.getPoints();
+        scratch.shift(Direction.fromOrdinal((int) (delta & 3)));
+        int exponent = (int) ((delta >>> SPAWN_EXPONENT_SHIFT) & PackedRows.CELL_MASK);
+        if (exponent != 0) {
+            int index = (int) ((delta >>> SPAWN_CELL_SHIFT) & 0xFFFF);
+            scratch.setValue(index / width, index % width, 1 << exponent);
+        }
+        assert scratch.getPoints() - pointsBefore == (int) (delta >> SCORE_SHIFT);
+    }
+
+    private void storeFrame(long position, GameEngine board) {
+        int offset = frameSlot(position) * frameWords;
+        for (int w = 0; w < frameWords; w++) {
+            frames[offset + w] = 0L;
+        }
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = board.getValue(i, j);
+                if (value != 0) {
+                    PackedRows.set(frames, offset, i * width + j, Integer.numberOfTrailingZeros(value));
+                }
+            }
+        }
+        framePoints[frameSlot(position)] = board.getPoints();
+    }
+
+    private void loadFrame(long position) {
+        int offset = frameSlot(position) * frameWords;
+        int[] values = new int[width * height];
+        for (int index = 0; index < values.length; index++) {
+            int exponent = PackedRows.get(frames, offset, index);
+            values[index] = exponent == 0 ? 0 : 1 << exponent;
+        }
+        scratch.loadState(values, framePoints[frameSlot(position)]);
+    }
+
+    private int deltaSlot(long position) {
+        return (int) (position % deltas.length);
+    }
+
+    private int frameSlot(long position) {
+        return (int) (position / KEYFRAME_INTERVAL % frameSlots);
+    }
+
+    /**
+     * Sizes the rings for the given number of moves, moving over what is kept so far
+     */
+    private void allocate(int moves) {
+        long[] oldDeltas = deltas;
+        long[] oldFrames = frames;
+        int[] oldPoints = framePoints;
+        int oldSlots = frameSlots;
+
+        deltas = new long[moves];
+        frameSlots = moves / KEYFRAME_INTERVAL + 1;
+        frames = new long[frameSlots * frameWords];
+        framePoints = new int[frameSlots];
+        if (oldDeltas == null) {
+            return;
+        }
+        for (long p = base; p < top; p++) {
+            deltas[deltaSlot(p)] = oldDeltas[(int) (p % oldDeltas.length)];
+        }
+        for (long p = base; p <= top; p += KEYFRAME_INTERVAL) {
+            int from = (int) (p / KEYFRAME_INTERVAL % oldSlots);
+            System.arraycopy(oldFrames, from * frameWords, frames, frameSlot(p) * frameWords, frameWords);
+            framePoints[frameSlot(p)] = oldPoints[from];
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Told about every move that changed the board, right after it is made.
+ *
+ * Called on the thread that made the move, so a listener must return quickly.
+ */
+
+public interface MoveListener {
+    /**
+     * @param event what the move did
+     */
+    void moveMade(MoveEvent event);
+}
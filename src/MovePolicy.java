@@ -0,0 +1,14 @@
+/**
+ * Chooses moves for a player that is not a person at the keyboard.
+ *
+ * Implementations must not change the engine they are given.
+ */
+
+public interface MovePolicy {
+
+    /**
+     * @param game the current game
+     * @return the direction to slide in next, or null if no direction changes the board
+     */
+    Direction bestMove(GameEngine game);
+}
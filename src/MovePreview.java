@@ -0,0 +1,87 @@
+/**
+ * The outcome of a move worked out without making it: the board right after
+ * the slide, before any random tile is added, and the points it would score.
+ *
+ * Immutable, so it can be handed to other threads.
+ */
+
+public final class MovePreview {
+    private final Direction direction;
+    private final boolean changed;
+    private final int scoreDelta;
+    private final int width;
+    private final int height;
+    private final int[] cells;
+
+    /**
+     * @param direction  the direction that was previewed
+     * @param changed    true if the slide changes the board
+     * @param scoreDelta the points the slide would score
+     * @param board      the board after the slide, copied
+     */
+    MovePreview(Direction direction, boolean changed, int scoreDelta, GameEngine board) {
+        this(direction, changed, scoreDelta, board.getWidth(), board.getHeight(),
+                new int[board.getWidth() * board.getHeight()]);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                cells[i * width + j] = board.getValue(i, j);
+            }
+        }
+    }
+
+    /**
+     * @param direction  the direction that was previewed
+     * @param changed    true if the slide changes the board
+     * @param scoreDelta the points the slide would score
+     * @param width      the board width
+     * @param height     the board height
+     * @param cells      the tile values after the slide in row-major order, not copied
+     */
+    MovePreview(Direction direction, boolean changed, int scoreDelta, int width, int height, int[] cells) {
+        this.direction = direction;
+        this.changed = changed;
+        this.scoreDelta = scoreDelta;
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return true if the slide changes the board, i.e. the move is legal
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the tile value at the cell after the slide, 0 if the cell is empty
+     */
+    public int getValue(int row, int col) {
+        return cells[row * width + col];
+    }
+
+    /**
+     * @return a copy of the board after the slide, in row-major order
+     */
+    public int[] toArray() {
+        return cells.clone();
+    }
+}
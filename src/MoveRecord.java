@@ -0,0 +1,70 @@
+/**
+ * One move event in the trace ring buffer.
+ *
+ * Records are preallocated slots that are reused as the ring wraps around, so
+ * a producer fills the fields of a claimed record instead of creating a new one.
+ * The board arrays only grow when a bigger board is traced.
+ */
+
+public final class MoveRecord {
+    long sequence;
+    public Direction direction;
+    public int width;
+    public int height;
+    public int scoreDelta;
+    public int points;
+    public int spawnRow;
+    public int spawnCol;
+    public int spawnValue;
+    public boolean hasBoards;
+    public int[] before = new int[0];
+    public int[] after = new int[0];
+
+    MoveRecord() {
+    }
+
+    /**
+     * Makes sure the board arrays can hold a board of the given size.
+     *
+     * @param width  the board width
+     * @param height the board height
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        if (before.length < width * height) {
+            before = new int[width * height];
+            after = new int[width * height];
+        }
+    }
+
+    /**
+     * Writes a human readable form of this record.
+     *
+     * @param out the builder to append to
+     */
+    void appendTo(StringBuilder out) {
+        out.append('#').append(sequence)
+                .append(' ').append(direction)
+                .append(" +").append(scoreDelta)
+                .append(" points=").append(points);
+        if (spawnValue != 0) {
+            out.append(" spawn=(").append(spawnRow).append(',').append(spawnCol).append(")=").append(spawnValue);
+        } else {
+            out.append(" spawn=none");
+        }
+        out.append('\n');
+        if (hasBoards) {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    out.append(before[i * width + j]).append(' ');
+                }
+                out.append(i == 0 ? "-> " : "   ");
+                for (int j = 0; j < width; j++) {
+                    out.append(after[i * width + j]).append(' ');
+                }
+                out.append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records move events from the game engines and writes them out on a background thread.
+ *
+ * - Engines check isEnabled before doing any trace work, so tracing costs one field read when OFF
+ * - Events go into a lock-free TraceRingBuffer; a full ring drops events rather than blocking
+ * - A daemon writer thread drains the ring into a Writer
+ *
+ * Tracing can be switched on from the command line with -Dgame.trace=moves or -Dgame.trace=boards,
+ * which writes to standard output, or from code with start and stop. An unknown value leaves tracing off.
+ */
+
+public final class MoveTrace {
+    private static final int CAPACITY = 4096;
+
+    private static volatile TraceLevel level = TraceLevel.OFF;
+    private static TraceRingBuffer buffer;
+    private static Thread writerThread;
+
+    static {
+        String property = System.getProperty("game.trace");
+        if (property != null && !property.isEmpty()) {
+            try {
+                start(TraceLevel.valueOf(property.toUpperCase()), new OutputStreamWriter(System.out));
+            } catch (IllegalArgumentException e) {
+                // a typo on the command line must not stop Grid from loading
+                System.err.println("Ignoring game.trace=" + property + ", expected moves or boards; tracing is off");
+            }
+        }
+    }
+
+    private MoveTrace() {
+    }
+
+    /**
+     * @param wanted the level an event belongs to
+     * @return true if events of that level are being recorded
+     */
+    public static boolean isEnabled(TraceLevel wanted) {
+        return level.compareTo(wanted) >= 0;
+    }
+
+    /**
+     * @return the current trace level
+     */
+    public static TraceLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Starts recording events at the given level, replacing any running trace.
+     *
+     * @param newLevel the level to record at
+     * @param out      where the writer thread sends formatted events
+     */
+    public static synchronized void start(TraceLevel newLevel, Writer out) {
+        stop();
+        if (newLevel == TraceLevel.OFF) {
+            return;
+        }
+        TraceRingBuffer ring = new TraceRingBuffer(CAPACITY);
+        buffer = ring;
+        writerThread = new Thread(() -> drain(ring, out), "move-trace-writer");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+        level = newLevel;
+    }
+
+    /**
+     * Stops recording and waits for the writer to flush what was already recorded.
+     */
+    public static synchronized void stop() {
+        level = TraceLevel.OFF;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writerThread = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Claims a record for an event. The caller fills it in and passes it to publish.
+     *
+     * @return a record to fill, or null if tracing is off or the ring is full
+     */
+    public static MoveRecord claim() {
+        TraceRingBuffer ring = buffer;
+        if (ring == null || level == TraceLevel.OFF) {
+            return null;
+        }
+        MoveRecord record = ring.claim();
+        if (record != null) {
+            record.hasBoards = false;
+        }
+        return record;
+    }
+
+    /**
+     * Hands a filled record to the writer thread.
+     *
+     * @param record a record returned by claim
+     */
+    public static void publish(MoveRecord record) {
+        TraceRingBuffer ring = buffer;
+        if (ring != null) {
+            ring.publish(record);
+        }
+    }
+
+    private static void drain(TraceRingBuffer ring, Writer out) {
+        StringBuilder text = new StringBuilder();
+        boolean stopping = false;
+        try {
+            while (true) {
+                MoveRecord record = ring.peek();
+                if (record != null) {
+                    record.appendTo(text);
+                    ring.release();
+                    if (text.length() > 8192) {
+                        out.append(text);
+                        text.setLength(0);
+                    }
+                    continue;
+                }
+                if (text.length() > 0) {
+                    out.append(text);
+                    text.setLength(0);
+                }
+                out.flush();
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(1_000_000L);
+                stopping = Thread.interrupted();
+            }
+            if (ring.getDropped() > 0) {
+                out.append("# ").append(String.valueOf(ring.getDropped())).append(" events dropped\n");
+                out.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
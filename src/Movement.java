@@ -11,9 +11,9 @@
  */
 
 public class Movement {
-    public GridPosition oldPos, newPos;
-    public int tileId;
-    public int value;
+    public final GridPosition oldPos, newPos;
+    public final int tileId;
+    public final int value;
     public Movement(GridPosition oldPos, GridPosition newPos, int tileId, int value) {
         this.oldPos = oldPos;
         this.newPos = newPos;
@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Streams background music from disk to one SourceDataLine.
+ *
+ * - Tracks are read CHUNK_FRAMES at a time on a low-priority player thread, so memory stays
+ *   flat however long a track is and play returns at once
+ * - A track that ends is opened again inside the same chunk, so loops have no gap
+ * - Switching tracks crossfades over CROSSFADE_MILLIS; playing null fades out to silence
+ * - A track that is missing or cannot be decoded counts as null, so the game stays silent
+ *   instead of failing
+ * - Every track is converted to MIX_FORMAT so any two can be mixed during a crossfade
+ */
+
+public final class MusicPlayer {
+    public static final String MENU_TRACK = "audio/mainmenusong.wav";
+    // no game track is shipped; put a file here to get music during play
+    public static final String GAME_TRACK = "audio/gamesong.wav";
+    private static final AudioFormat MIX_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    private static final int CHUNK_FRAMES = 1024;
+    private static final int LINE_BUFFER_FRAMES = 4 * CHUNK_FRAMES;
+    private static final int CROSSFADE_MILLIS = 1500;
+
+    private final Object lock = new Object();
+    private String requested;
+    private boolean changed;
+    private volatile float gain = 1f;
+
+    // only used by the player thread
+    private Voice current;
+    private Voice fading;
+    private SourceDataLine line;
+    private boolean noDevice;
+
+    private static final class Holder {
+        static final MusicPlayer INSTANCE = new MusicPlayer();
+    }
+
+    private MusicPlayer() {
+        Thread player = new Thread(this::run, "music-player");
+        player.setDaemon(true);
+        player.setPriority(Thread.MIN_PRIORITY);
+        player.start();
+    }
+
+    /**
+     * @return the shared player
+     */
+    public static MusicPlayer get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Crossfades to a track and loops it; does nothing if the track is already playing
+     *
+     * @param track the WAV file to play, or null to fade out
+     */
+    public void play(String track) {
+        synchronized (lock) {
+            requested = track;
+            changed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Fades out whatever is playing
+     */
+    public void stop() {
+        play(null);
+    }
+
+    /**
+     * Sets the music volume
+     *
+     * @param volume the gain in decibels, -80.0 (mute) to 6.0 (max)
+     */
+    public void setVolume(float volume) {
+        gain = (float) Math.pow(10, Math.min(6f, volume) / 20);
+    }
+
+    private void run() {
+        float[] mix = new float[CHUNK_FRAMES * 2];
+        byte[] out = new byte[CHUNK_FRAMES * MIX_FORMAT.getFrameSize()];
+        while (true) {
+            String track;
+            boolean switchTrack;
+            synchronized (lock) {
+                while (!changed && current == null && fading == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                switchTrack = changed;
+                track = requested;
+                changed = false;
+            }
+            if (switchTrack) {
+                switchTo(track);
+            }
+            if (current == null && fading == null) {
+                if (line != null) {
+                    line.drain();
+                    line.stop();
+                }
+                continue;
+            }
+            if (!openLine()) {
+                current = close(current);
+                fading = close(fading);
+                continue;
+            }
+
+            Arrays.fill(mix, 0f);
+            if (current != null && !current.mixInto(mix)) {
+                current = close(current);
+            }
+            if (fading != null && !fading.mixInto(mix)) {
+                fading = close(fading);
+            }
+            float volume = gain;
+            for (int i = 0; i < mix.length; i++) {
+                int sample = Math.round(Math.max(-1f, Math.min(1f, mix[i] * volume)) * Short.MAX_VALUE);
+                out[2 * i] = (byte) sample;
+                out[2 * i + 1] = (byte) (sample >> 8);
+            }
+            line.write(out, 0, out.length);
+        }
+    }
+
+    private void switchTo(String track) {
+        if (current != null && Objects.equals(current.track, track)) {
+            current.fadeTo(1f);
+            return;
+        }
+        close(fading);
+        fading = current;
+        if (fading != null) {
+            fading.fadeTo(0f);
+        }
+        current = track == null ? null : Voice.open(track);
+        if (current != null) {
+            current.fadeTo(1f);
+        }
+    }
+
+    /**
+     * Opens and starts the line the first time music plays
+     *
+     * @return false if there is no audio device
+     */
+    private boolean openLine() {
+        if (noDevice) {
+            return false;
+        }
+        try {
+            if (line == null) {
+                line = AudioSystem.getSourceDataLine(MIX_FORMAT);
+                line.open(MIX_FORMAT, LINE_BUFFER_FRAMES * MIX_FORMAT.getFrameSize());
+            }
+            if (!line.isRunning()) {
+                line.start();
+            }
+            return true;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            e.printStackTrace();
+            noDevice = true;
+            return false;
+        }
+    }
+
+    private static Voice close(Voice voice) {
+        if (voice != null) {
+            voice.close();
+        }
+        return null;
+    }
+
+    /**
+     * One track being streamed and its fade level
+     */
+    private static final class Voice {
+        private static final float FADE_STEP = 1000f / (CROSSFADE_MILLIS * MIX_FORMAT.getFrameRate());
+
+        final String track;
+        private AudioInputStream stream;
+        private final byte[] raw = new byte[CHUNK_FRAMES * MIX_FORMAT.getFrameSize()];
+        private float level;
+        private float target;
+
+        private Voice(String track, AudioInputStream stream) {
+            this.track = track;
+            this.stream = stream;
+        }
+
+        /**
+         * @return the track, or null if it is missing or cannot be played
+         */
+        static Voice open(String track) {
+            AudioInputStream stream = openStream(track);
+            return stream == null ? null : new Voice(track, stream);
+        }
+
+        private static AudioInputStream openStream(String track) {
+            if (!Files.isRegularFile(Paths.get(track))) {
+                return null;
+            }
+            try {
+                AudioInputStream source = AudioSystem.getAudioInputStream(Paths.get(track).toFile());
+                AudioFormat format = source.getFormat();
+                if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                        && format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+                    source = AudioSystem.getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, source);
+                }
+                if (!source.getFormat().matches(MIX_FORMAT)) {
+                    source = AudioSystem.getAudioInputStream(MIX_FORMAT, source);
+                }
+                return source;
+            } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        void fadeTo(float target) {
+            this.target = target;
+        }
+
+        /**
+         * Adds the next chunk of the track to the mix, opening the track again where it ends
+         *
+         * @return false once the voice has faded out or cannot be read
+         */
+        boolean mixInto(float[] mix) {
+            int filled = 0;
+            boolean reopened = false;
+            while (filled < raw.length) {
+                int read;
+                try {
+                    read = stream.read(raw, filled, raw.length - filled);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return false;
+                }
+                if (read > 0) {
+                    filled += read;
+                    reopened = false;
+                } else if (read < 0) {
+                    if (reopened) {
+                        return false; // the track is empty
+                    }
+                    close();
+                    stream = openStream(track);
+                    if (stream == null) {
+                        return false;
+                    }
+                    reopened = true;
+                }
+            }
+            for (int frame = 0; frame < CHUNK_FRAMES; frame++) {
+                if (level < target) {
+                    level = Math.min(target, level + FADE_STEP);
+                } else if (level > target) {
+                    level = Math.max(target, level - FADE_STEP);
+                }
+                for (int channel = 0; channel < 2; channel++) {
+                    int index = 2 * (2 * frame + channel);
+                    short sample = (short) ((raw[index] & 0xFF) | raw[index + 1] << 8);
+                    mix[2 * frame + channel] += sample / (float) Short.MAX_VALUE * level;
+                }
+            }
+            return !(target == 0f && level == 0f);
+        }
+
+        void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                stream = null;
+            }
+        }
+    }
+}
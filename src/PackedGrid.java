@@ -0,0 +1,295 @@
+import java.util.Arrays;
+
+/**
+ * A game engine for boards of any size up to 16x16 that stores each row as
+ * packed 5-bit exponents in a long[].
+ *
+ * - Rows slide in place, columns are gathered into packed lines, slid and scattered back
+ * - Lines of up to 4 cells use a shared lookup table, longer lines a bounded memo (see PackedRows)
+ * - Scores merges and spawns tiles exactly like Grid, without Tile objects
+ */
+
+public class PackedGrid implements GameEngine {
+    private static final long LOW_BITS;
+
+    static {
+        long bits = 0L;
+        for (int k = 0; k < PackedRows.CELLS_PER_WORD; k++) {
+            bits |= 1L << (PackedRows.CELL_BITS * k);
+        }
+        LOW_BITS = bits;
+    }
+
+    private final int width;
+    private final int height;
+    private final int rowWords;
+    private final int columnWords;
+    private final long[] rows;
+    private final long[] columns;
+    private final long[] rowEmptyBits;
+    private final PackedRows rowSlider;
+    private final PackedRows columnSlider;
+    private int points;
+    private boolean isGameWon;
+    private final RandomSource random;
+    private int lastSpawn = -1;
+
+    /**
+     * Create a new empty board with the given width and height
+     *
+     * @pre 3 < initialWidth <= 16 && 3 < initialHeight <= 16
+     * @param initialWidth
+     * @param initialHeight
+     */
+    public PackedGrid(int initialWidth, int initialHeight) {
+        this(initialWidth, initialHeight, new SplittableRandomSource());
+    }
+
+    /**
+     * Create a new empty board with the given width and height that spawns
+     * tiles from the given source
+     *
+     * @pre 3 < initialWidth <= 16 && 3 < initialHeight <= 16
+     * @param initialWidth
+     * @param initialHeight
+     * @param random where the new tiles' cells and values are drawn from
+     */
+    public PackedGrid(int initialWidth, int initialHeight, RandomSource random) {
+        if (initialWidth < 4 || initialHeight < 4
+                || initialWidth > PackedRows.MAX_LENGTH || initialHeight > PackedRows.MAX_LENGTH) {
+            throw new IllegalArgumentException("The packed engine supports boards from 4x4 to 16x16");
+        }
+        this.random = random;
+        width = initialWidth;
+        height = initialHeight;
+        rowWords = PackedRows.wordsFor(width);
+        columnWords = PackedRows.wordsFor(height);
+        rows = new long[height * rowWords];
+        columns = new long[width * columnWords];
+        rowSlider = PackedRows.forLength(width);
+        columnSlider = PackedRows.forLength(height);
+
+        rowEmptyBits = new long[rowWords];
+        for (int w = 0; w < rowWords; w++) {
+            int cells = Math.min(PackedRows.CELLS_PER_WORD, width - w * PackedRows.CELLS_PER_WORD);
+            rowEmptyBits[w] = LOW_BITS & ((1L << (PackedRows.CELL_BITS * cells)) - 1);
+        }
+    }
+
+    @Override
+    public void loadState(int[] values, int newPoints) {
+        assert values.length == width * height;
+        Arrays.fill(rows, 0L);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = values[i * width + j];
+                if (value != 0) {
+                    PackedRows.set(rows, i * rowWords, j, Integer.numberOfTrailingZeros(value));
+                }
+            }
+        }
+        points = newPoints;
+        isGameWon = maxExponent() >= 11;
+    }
+
+    @Override
+    public void slideRight() {
+        lastSpawn = -1;
+        if (slideRows(true)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideLeft() {
+        lastSpawn = -1;
+        if (slideRows(false)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideUp() {
+        lastSpawn = -1;
+        if (slideColumns(false)) {
+            addRandom();
+        }
+    }
+
+    @Override
+    public void slideDown() {
+        lastSpawn = -1;
+        if (slideColumns(true)) {
+            addRandom();
+        }
+    }
+
+    private boolean slideRows(boolean reverse) {
+        boolean changed = false;
+        for (int i = 0; i < height; i++) {
+            if (rowSlider.slide(rows, i * rowWords, reverse)) {
+                points += rowSlider.lastScore();
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean slideColumns(boolean reverse) {
+        Arrays.fill(columns, 0L);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int exponent = PackedRows.get(rows, i * rowWords, j);
+                if (exponent != 0) {
+                    PackedRows.set(columns, j * columnWords, i, exponent);
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (int j = 0; j < width; j++) {
+            if (columnSlider.slide(columns, j * columnWords, reverse)) {
+                points += columnSlider.lastScore();
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+
+        Arrays.fill(rows, 0L);
+        for (int j = 0; j < width; j++) {
+            for (int i = 0; i < height; i++) {
+                int exponent = PackedRows.get(columns, j * columnWords, i);
+                if (exponent != 0) {
+                    PackedRows.set(rows, i * rowWords, j, exponent);
+                }
+            }
+        }
+        return true;
+    }
+
+    private long emptyCells(int word) {
+        long value = rows[word];
+        long x = value | (value >>> 1) | (value >>> 2) | (value >>> 3) | (value >>> 4);
+        return ~x & rowEmptyBits[word % rowWords];
+    }
+
+    /**
+     * Picks a random empty cell in row-major order and makes it a 2 or a 4,
+     * using the same random draws as Grid.addRandom
+     */
+    @Override
+    public void addRandom() {
+        int count = 0;
+        for (int word = 0; word < rows.length; word++) {
+            count += Long.bitCount(emptyCells(word));
+        }
+        if (!isGameWon && maxExponent() >= 11) {
+            isGameWon = true;
+        }
+        if (count == 0) {
+            return;
+        }
+        int randInt = random.nextInt(count);
+        for (int word = 0; word < rows.length; word++) {
+            long empty = emptyCells(word);
+            int inWord = Long.bitCount(empty);
+            if (randInt < inWord) {
+                for (int k = 0; k < randInt; k++) {
+                    empty &= empty - 1;
+                }
+                long exponent = random.nextDouble() > 0.8 ? 2 : 1;
+                int shift = Long.numberOfTrailingZeros(empty);
+                rows[word] |= exponent << shift;
+                lastSpawn = (word / rowWords) * width + (word % rowWords) * PackedRows.CELLS_PER_WORD
+                        + shift / PackedRows.CELL_BITS;
+                return;
+            }
+            randInt -= inWord;
+        }
+    }
+
+    private int maxExponent() {
+        int max = 0;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                max = Math.max(max, PackedRows.get(rows, i * rowWords, j));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public boolean isOver() {
+        for (int word = 0; word < rows.length; word++) {
+            if (emptyCells(word) != 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int exponent = PackedRows.get(rows, i * rowWords, j);
+                if (exponent == PackedRows.MAX_EXPONENT) {
+                    continue;
+                }
+                if (j + 1 < width && exponent == PackedRows.get(rows, i * rowWords, j + 1)) {
+                    return false;
+                }
+                if (i + 1 < height && exponent == PackedRows.get(rows, (i + 1) * rowWords, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isGameWon() {
+        return isGameWon;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getLastSpawn() {
+        return lastSpawn;
+    }
+
+    @Override
+    public RandomSource getRandomSource() {
+        return random;
+    }
+
+    @Override
+    public int getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getValue(int row, int col) {
+        int exponent = PackedRows.get(rows, row * rowWords, col);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = getValue(i, j);
+                string.append(value == 0 ? "x" : String.valueOf(value)).append(" | ");
+            }
+            string.append("\n");
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Slides a single packed line (a row or a column) of 5-bit exponents.
+ *
+ * Layout:
+ * - A line of up to 16 cells is stored in one or two longs, 12 cells per long
+ * - Cell k lives in word k / 12 at bit 5 * (k % 12), so sliding left moves tiles towards cell 0
+ * - Exponent 30 is the largest tile that fits in an int; two of them are never merged
+ *
+ * Lines of up to 4 cells are looked up in a full table shared by every board,
+ * longer lines go through a small memo of recently seen lines owned by one board.
+ *
+ * Not thread safe: each PackedGrid creates its own instances.
+ */
+
+abstract class PackedRows {
+    static final int CELL_BITS = 5;
+    static final int CELLS_PER_WORD = 12;
+    static final long CELL_MASK = 0x1FL;
+    static final int MAX_EXPONENT = 30;
+
+    /** Longest line that gets a full lookup table (2^20 entries) */
+    static final int MAX_TABLE_LENGTH = 4;
+
+    /** Longest line that fits in two words */
+    static final int MAX_LENGTH = 16;
+
+    protected final int length;
+    protected final int words;
+    protected int lastScore;
+
+    PackedRows(int length) {
+        this.length = length;
+        this.words = wordsFor(length);
+    }
+
+    /**
+     * @param length the number of cells in the line
+     * @return a slider suited to the line length
+     */
+    static PackedRows forLength(int length) {
+        if (length <= MAX_TABLE_LENGTH) {
+            return new Table(length);
+        }
+        return new Cache(length);
+    }
+
+    /**
+     * @param length the number of cells in a line
+     * @return the number of longs needed to hold the line
+     */
+    static int wordsFor(int length) {
+        return (length + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    static int get(long[] line, int offset, int k) {
+        return (int) ((line[offset + k / CELLS_PER_WORD] >>> (CELL_BITS * (k % CELLS_PER_WORD))) & CELL_MASK);
+    }
+
+    static void set(long[] line, int offset, int k, int exponent) {
+        int word = offset + k / CELLS_PER_WORD;
+        int shift = CELL_BITS * (k % CELLS_PER_WORD);
+        line[word] = (line[word] & ~(CELL_MASK << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Slides a line in place and remembers the points scored, see lastScore
+     *
+     * @param line    the array holding the packed line
+     * @param offset  the index of the first word of the line
+     * @param reverse true to slide towards the last cell instead of the first
+     * @return true if the line changed
+     */
+    abstract boolean slide(long[] line, int offset, boolean reverse);
+
+    /**
+     * @return the points scored by the last call to slide
+     */
+    int lastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Slides a line the slow way by unpacking it into an array.
+     *
+     * @param line    the array holding the packed line, updated in place
+     * @param offset  the index of the first word of the line
+     * @param length  the number of cells in the line
+     * @param reverse true to slide towards the last cell
+     * @param cells   scratch space of exactly length cells
+     * @return the points scored
+     */
+    static int compute(long[] line, int offset, int length, boolean reverse, int[] cells) {
+        for (int k = 0; k < length; k++) {
+            cells[k] = get(line, offset, reverse ? length - 1 - k : k);
+        }
+        int score = Bitboards.slideCellsLeft(cells, MAX_EXPONENT);
+        for (int k = 0; k < length; k++) {
+            set(line, offset, reverse ? length - 1 - k : k, cells[k]);
+        }
+        return score;
+    }
+
+    /**
+     * Full lookup tables for lines of up to MAX_TABLE_LENGTH cells, built the
+     * first time a board of that size is created.
+     */
+    private static final class Table extends PackedRows {
+        private static final int[][] LEFT = new int[MAX_TABLE_LENGTH + 1][];
+        private static final int[][] RIGHT = new int[MAX_TABLE_LENGTH + 1][];
+        private static final int[][] SCORE = new int[MAX_TABLE_LENGTH + 1][];
+
+        private final int[] left;
+        private final int[] right;
+        private final int[] score;
+
+        Table(int length) {
+            super(length);
+            build(length);
+            left = LEFT[length];
+            right = RIGHT[length];
+            score = SCORE[length];
+        }
+
+        private static synchronized void build(int length) {
+            if (LEFT[length] != null) {
+                return;
+            }
+            int entries = 1 << (CELL_BITS * length);
+            int[] leftTable = new int[entries];
+            int[] rightTable = new int[entries];
+            int[] scoreTable = new int[entries];
+            int[] cells = new int[length];
+            long[] line = new long[1];
+            for (int index = 0; index < entries; index++) {
+                line[0] = index;
+                scoreTable[index] = compute(line, 0, length, false, cells);
+                leftTable[index] = (int) line[0];
+                line[0] = index;
+                compute(line, 0, length, true, cells);
+                rightTable[index] = (int) line[0];
+            }
+            LEFT[length] = leftTable;
+            RIGHT[length] = rightTable;
+            SCORE[length] = scoreTable;
+        }
+
+        @Override
+        boolean slide(long[] line, int offset, boolean reverse) {
+            int index = (int) line[offset];
+            int moved = reverse ? right[index] : left[index];
+            // Sliding either way pairs up the same tiles, so the score does not depend on direction
+            lastScore = score[index];
+            line[offset] = moved;
+            return moved != index;
+        }
+    }
+
+    /**
+     * A direct-mapped memo of line transitions for lines too long to tabulate.
+     * A new line simply evicts whatever shared its slot, which keeps the memo
+     * bounded while the lines a game keeps revisiting stay cached.
+     * The all-zero line maps to itself with no score, so zeroed slots are valid.
+     */
+    private static final class Cache extends PackedRows {
+        private static final int SLOT_BITS = 13;
+
+        private final long[] keys;
+        private final long[] results;
+        private final int[] scores = new int[2 << SLOT_BITS];
+        private final int[] cells;
+
+        Cache(int length) {
+            super(length);
+            keys = new long[(2 << SLOT_BITS) * words];
+            results = new long[(2 << SLOT_BITS) * words];
+            cells = new int[length];
+        }
+
+        @Override
+        boolean slide(long[] line, int offset, boolean reverse) {
+            long hash = line[offset] * 0x9E3779B97F4A7C15L;
+            if (words > 1) {
+                hash = (hash ^ line[offset + 1]) * 0x9E3779B97F4A7C15L;
+            }
+            int slot = (int) (hash >>> (64 - SLOT_BITS)) << 1;
+            if (reverse) {
+                slot++;
+            }
+            int base = slot * words;
+            boolean hit = keys[base] == line[offset] && (words == 1 || keys[base + 1] == line[offset + 1]);
+            if (!hit) {
+                System.arraycopy(line, offset, keys, base, words);
+                System.arraycopy(line, offset, results, base, words);
+                scores[slot] = compute(results, base, length, reverse, cells);
+            }
+            lastScore = scores[slot];
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                if (line[offset + w] != results[base + w]) {
+                    line[offset + w] = results[base + w];
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+}
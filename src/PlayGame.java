@@ -4,6 +4,8 @@
  */
 public class PlayGame {
     public static void main(String[] args) {
+        // start decoding the sound effects while the menu opens
+        SoundBank.get();
         javax.swing.SwingUtilities.invokeLater(() -> {
             new MainMenu();
         });
@@ -0,0 +1,27 @@
+/**
+ * A move policy that picks a random direction among those that change the board.
+ *
+ * Useful as a baseline and for measuring raw engine speed. Not thread safe:
+ * give every thread its own instance.
+ */
+
+public class RandomPolicy implements MovePolicy {
+    private final RandomSource random;
+
+    public RandomPolicy(RandomSource random) {
+        this.random = random;
+    }
+
+    @Override
+    public Direction bestMove(GameEngine game) {
+        int legal = game.getLegalMoves();
+        int offset = random.nextInt(4);
+        for (int k = 0; k < 4; k++) {
+            Direction direction = Direction.fromOrdinal((offset + k) & 3);
+            if ((legal & direction.mask()) != 0) {
+                return direction;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Where a game engine gets its random numbers from when it spawns a tile.
+ *
+ * - Every engine owns its own source, so parallel games never share a generator
+ * - Engines draw nextInt(emptyCells) for the cell, then nextDouble() > 0.8 for a 4,
+ *   so the same source and the same moves give the same game on every engine
+ */
+
+public interface RandomSource {
+
+    /**
+     * @param bound the upper bound, must be positive
+     * @return a uniformly distributed int in [0, bound)
+     */
+    int nextInt(int bound);
+
+    /**
+     * @return a uniformly distributed double in [0, 1)
+     */
+    double nextDouble();
+}
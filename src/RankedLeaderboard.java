@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Every submitted score, ranked separately for each board size.
+ *
+ * - Each board size has its own indexable skip list: every link also stores how many
+ *   entries it jumps over, so add, rank, get, top-K and percentile are all O(log n)
+ * - Each board size has its own StampedLock, so scores for different sizes never wait on each other,
+ *   and size and getHighestScore read without taking the lock at all
+ * - Submitters never wait on the lock: add puts the entry on a lock-free queue, and whichever
+ *   thread gets the write lock inserts everything queued so far (flat combining); a submitter
+ *   that finds the lock taken leaves its entry to the holder or the next reader
+ * - Queries insert whatever is still queued first, then read under the shared read lock, so they
+ *   see every entry whose add returned before they started
+ * - Higher scores rank first; equal scores keep the order they were added in
+ *
+ * Ranks are 1-based: the best entry has rank 1.
+ */
+
+public final class RankedLeaderboard {
+    private final ConcurrentHashMap<Integer, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an entry to the ranking for its board size
+     *
+     * @param entry the entry
+     * @param order decides the rank among equal scores, lower first
+     */
+    public void add(LeaderEntry entry, long order) {
+        partitions.computeIfAbsent(key(entry.getWidth(), entry.getHeight()), k -> new Partition())
+                .add(entry, order);
+    }
+
+    /**
+     * @return the number of entries for the board size
+     */
+    public int size(int width, int height) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? 0 : partition.size();
+    }
+
+    /**
+     * @return the best score for the board size, 0 if there is none
+     */
+    public int getHighestScore(int width, int height) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? 0 : partition.highestScore();
+    }
+
+    /**
+     * @param rank the 1-based rank
+     * @return the entry at that rank for the board size, null if there are fewer entries
+     */
+    public LeaderEntry get(int width, int height, int rank) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? null : partition.get(rank);
+    }
+
+    /**
+     * @param k the most entries to return
+     * @return the best k entries for the board size, best first
+     */
+    public List<LeaderEntry> top(int width, int height, int k) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? new ArrayList<LeaderEntry>() : partition.top(k);
+    }
+
+    /**
+     * @param score a score
+     * @return the rank the score would get if it was added now: one more than the number of higher scores
+     */
+    public int rankOf(int width, int height, int score) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? 1 : partition.countAbove(score) + 1;
+    }
+
+    /**
+     * @param score a score
+     * @return the percentage of entries for the board size that are lower than the score, 100 if there are none
+     */
+    public double percentile(int width, int height, int score) {
+        Partition partition = partitions.get(key(width, height));
+        return partition == null ? 100.0 : partition.percentile(score);
+    }
+
+    /**
+     * @return a new list of every entry, each board size best first
+     */
+    public List<LeaderEntry> entries() {
+        List<LeaderEntry> entries = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            partition.collect(entries);
+        }
+        return entries;
+    }
+
+    private static int key(int width, int height) {
+        return width << 16 | height;
+    }
+
+    /**
+     * The indexable skip list of one board size
+     */
+    private static final class Partition {
+        private static final int MAX_LEVEL = 16;
+
+        private final StampedLock lock = new StampedLock();
+        private final ConcurrentLinkedQueue<Node> queued = new ConcurrentLinkedQueue<>();
+        private final Node head = new Node(null, 0, 0L, MAX_LEVEL);
+        private final Node[] update = new Node[MAX_LEVEL];
+        private final int[] rank = new int[MAX_LEVEL];
+        private int level = 1;
+        // the entries in the list, only used under the lock
+        private int size;
+        // every entry added, queued or not, read without the lock
+        private final AtomicInteger added = new AtomicInteger();
+        private final AtomicInteger highestScore = new AtomicInteger();
+
+        void add(LeaderEntry entry, long order) {
+            queued.add(new Node(entry, entry.getScore(), order, randomLevel()));
+            highestScore.accumulateAndGet(entry.getScore(), Math::max);
+            added.incrementAndGet();
+            // a holder of the write lock checks the queue again after unlocking, so an entry
+            // queued while the lock was taken is never left behind by writers
+            do {
+                long stamp = lock.tryWriteLock();
+                if (stamp == 0L) {
+                    return;
+                }
+                try {
+                    insertQueued();
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            } while (!queued.isEmpty());
+        }
+
+        /**
+         * Inserts every queued entry into the list first if there are any
+         *
+         * @return a read stamp of the lock
+         */
+        private long readLock() {
+            if (queued.isEmpty()) {
+                return lock.readLock();
+            }
+            long stamp = lock.writeLock();
+            insertQueued();
+            return lock.tryConvertToReadLock(stamp);
+        }
+
+        /**
+         * @pre the caller holds the write lock
+         */
+        private void insertQueued() {
+            Node node;
+            while ((node = queued.poll()) != null) {
+                insert(node);
+            }
+        }
+
+        /**
+         * @pre the caller holds the write lock
+         */
+        private void insert(Node node) {
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                rank[i] = i == level - 1 ? 0 : rank[i + 1];
+                while (x.next[i] != null && x.next[i].before(node.score, node.order)) {
+                    rank[i] += x.span[i];
+                    x = x.next[i];
+                }
+                update[i] = x;
+            }
+            int newLevel = node.next.length;
+            if (newLevel > level) {
+                for (int i = level; i < newLevel; i++) {
+                    rank[i] = 0;
+                    update[i] = head;
+                    head.span[i] = size;
+                }
+                level = newLevel;
+            }
+            for (int i = 0; i < newLevel; i++) {
+                node.next[i] = update[i].next[i];
+                update[i].next[i] = node;
+                node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+                update[i].span[i] = rank[0] - rank[i] + 1;
+            }
+            for (int i = newLevel; i < level; i++) {
+                update[i].span[i]++;
+            }
+            size++;
+        }
+
+        int size() {
+            return added.get();
+        }
+
+        int highestScore() {
+            return highestScore.get();
+        }
+
+        LeaderEntry get(int wanted) {
+            long stamp = readLock();
+            try {
+                Node node = nodeAt(wanted);
+                return node == null ? null : node.entry;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        List<LeaderEntry> top(int k) {
+            long stamp = readLock();
+            try {
+                List<LeaderEntry> entries = new ArrayList<>(Math.min(k, size));
+                for (Node x = head.next[0]; x != null && entries.size() < k; x = x.next[0]) {
+                    entries.add(x.entry);
+                }
+                return entries;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * @return the number of entries scoring more than the given score
+         */
+        int countAbove(int score) {
+            long stamp = readLock();
+            try {
+                return countAboveLocked(score);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        double percentile(int score) {
+            long stamp = readLock();
+            try {
+                return size == 0 ? 100.0 : 100.0 * (size - countAboveLocked(score - 1L)) / size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void collect(List<LeaderEntry> entries) {
+            long stamp = readLock();
+            try {
+                for (Node x = head.next[0]; x != null; x = x.next[0]) {
+                    entries.add(x.entry);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * @pre the caller holds the lock
+         */
+        private int countAboveLocked(long score) {
+            int count = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && x.next[i].score > score) {
+                    count += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @pre the caller holds the lock
+         */
+        private Node nodeAt(int wanted) {
+            if (wanted < 1 || wanted > size) {
+                return null;
+            }
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= wanted) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (traversed == wanted) {
+                    return x;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * A level of i + 1 with probability 1 / 4^i, the way Redis sorted sets do it
+         */
+        private static int randomLevel() {
+            int bits = ThreadLocalRandom.current().nextInt();
+            int newLevel = 1;
+            while (newLevel < MAX_LEVEL && (bits & 3) == 0) {
+                newLevel++;
+                bits >>>= 2;
+            }
+            return newLevel;
+        }
+    }
+
+    /**
+     * One entry and its links; span[i] is how many entries next[i] is ahead of this node
+     */
+    private static final class Node {
+        final LeaderEntry entry;
+        final int score;
+        final long order;
+        final Node[] next;
+        final int[] span;
+
+        Node(LeaderEntry entry, int score, long order, int level) {
+            this.entry = entry;
+            this.score = score;
+            this.order = order;
+            next = new Node[level];
+            span = new int[level];
+        }
+
+        /**
+         * @return true if this node ranks before an entry with the given score and order
+         */
+        boolean before(int score, long order) {
+            return this.score > score || (this.score == score && this.order < order);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads replay archives written by ReplayWriter and checks them by playing every game again.
+ *
+ * - The archive is memory-mapped in windows of up to 1 GiB that never split a record,
+ *   so archives larger than 2 GiB work and nothing is copied onto the heap
+ * - Games are found by walking the record headers once; after that any game can be read by index
+ * - verify replays games in ForkJoin tasks that only use absolute reads on the shared buffers,
+ *   so no locks are taken and no Tile objects are made unless the Grid engine is asked for
+ * - A record cut short at the end of the file, e.g. by a crash while writing, is ignored, and so
+ *   is everything from a record header that makes no sense (a negative move count) onwards
+ *
+ * Usage:
+ *   java -cp bin ReplayReader replays.bin [--engine grid|array|packed|bitboard] [--threads 8]
+ */
+
+public class ReplayReader implements AutoCloseable {
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final int GAMES_PER_TASK = 256;
+
+    private final FileChannel channel;
+    private final List<ByteBuffer> windows = new ArrayList<>();
+    // game i is at offsets[i] in windows.get(windowOf[i])
+    private int[] offsets = new int[1024];
+    private int[] windowOf = new int[1024];
+    private int games;
+
+    /**
+     * Maps an archive and finds every game in it
+     *
+     * @param path the archive file
+     * @throws IOException if the file cannot be read or is not a replay archive
+     */
+    public ReplayReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(ReplayWriter.FILE_HEADER_BYTES);
+        channel.read(header, 0);
+        if (size < ReplayWriter.FILE_HEADER_BYTES || header.getInt(0) != ReplayWriter.MAGIC
+                || header.getInt(4) != ReplayWriter.VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a replay archive");
+        }
+
+        long start = ReplayWriter.FILE_HEADER_BYTES;
+        while (start < size) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+            int offset = 0;
+            while (offset + GameReplay.HEADER_BYTES <= window.limit()) {
+                long record = GameReplay.recordSize(window, offset);
+                if (record < 0 || offset + record > window.limit()) {
+                    break; // garbage, a record cut off at the end of the file, or one that continues in the next window
+                }
+                add(windows.size(), offset);
+                offset += (int) record;
+            }
+            if (offset == 0) {
+                break; // not even one whole record left: a cut-off tail, garbage or a single record above the window size
+            }
+            windows.add(window);
+            start += offset;
+        }
+    }
+
+    private void add(int window, int offset) {
+        if (games == offsets.length) {
+            offsets = Arrays.copyOf(offsets, games * 2);
+            windowOf = Arrays.copyOf(windowOf, games * 2);
+        }
+        offsets[games] = offset;
+        windowOf[games] = window;
+        games++;
+    }
+
+    /**
+     * @return the number of whole games in the archive
+     */
+    public int size() {
+        return games;
+    }
+
+    /**
+     * @param index the index of the game, in the order they were written
+     * @return the game, copied out of the archive
+     */
+    public GameReplay get(int index) {
+        return GameReplay.readFrom(windows.get(windowOf[index]), offsets[index]);
+    }
+
+    /**
+     * Plays every game again and checks that it ends with the recorded points.
+     *
+     * @param pool       the pool the games are replayed on
+     * @param engineType the engine to replay with; 4x4 only engines fall back to ARRAY for other sizes
+     * @return what was found
+     */
+    public Report verify(ForkJoinPool pool, EngineType engineType) {
+        long started = System.nanoTime();
+        long[] totals = pool.invoke(new VerifyTask(engineType, 0, games));
+        return new Report(games, totals[0], totals[1], totals[2], (int) totals[3], System.nanoTime() - started);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Replays the games numbered [from, to). Returns totals[0] = moves, totals[1] = points,
+     * totals[2] = games whose points did not match, totals[3] = the first of those or -1.
+     */
+    private final class VerifyTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final EngineType engineType;
+        private final int from;
+        private final int to;
+
+        VerifyTask(EngineType engineType, int from, int to) {
+            this.engineType = engineType;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                VerifyTask left = new VerifyTask(engineType, from, middle);
+                VerifyTask right = new VerifyTask(engineType, middle, to);
+                left.fork();
+                long[] totals = right.compute();
+                long[] other = left.join();
+                totals[0] += other[0];
+                totals[1] += other[1];
+                totals[2] += other[2];
+                if (other[3] >= 0) {
+                    totals[3] = other[3];
+                }
+                return totals;
+            }
+
+            long[] totals = {0, 0, 0, -1};
+            for (int i = to - 1; i >= from; i--) {
+                ByteBuffer window = windows.get(windowOf[i]);
+                int offset = offsets[i];
+                EngineType type = engineType;
+                if (type == EngineType.BITBOARD
+                        && (GameReplay.width(window, offset) != 4 || GameReplay.height(window, offset) != 4)) {
+                    type = EngineType.ARRAY;
+                }
+                GameEngine engine = GameReplay.replay(window, offset, type);
+                totals[0] += GameReplay.moveCount(window, offset);
+                totals[1] += engine.getPoints();
+                if (engine.getPoints() != GameReplay.recordedPoints(window, offset)) {
+                    totals[2]++;
+                    totals[3] = i;
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * The outcome of verify
+     */
+    public static final class Report {
+        public final int games;
+        public final long moves;
+        public final long points;
+        public final long mismatches;
+        public final int firstMismatch;
+        public final long nanos;
+
+        Report(int games, long moves, long points, long mismatches, int firstMismatch, long nanos) {
+            this.games = games;
+            this.moves = moves;
+            this.points = points;
+            this.mismatches = mismatches;
+            this.firstMismatch = firstMismatch;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("%d games, %d moves in %.2f s (%.0f games/min, %.0f moves/sec)%n"
+                    + "mismatches: %d%s", games, moves, seconds, games / seconds * 60, moves / seconds,
+                    mismatches, mismatches == 0 ? "" : " (first at game " + firstMismatch + ")");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java ReplayReader <archive> [--engine grid|array|packed|bitboard] [--threads n]");
+            return;
+        }
+        EngineType engineType = EngineType.GRID;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--engine")) {
+                engineType = EngineType.valueOf(args[i + 1].toUpperCase());
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+        }
+        try (ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            System.out.println(reader.verify(pool, engineType));
+            pool.shutdown();
+        }
+    }
+}
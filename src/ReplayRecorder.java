@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/**
+ * Collects the moves of a game as it is played, one byte per move, so it can
+ * be turned into a GameReplay when it ends.
+ *
+ * Not thread safe: give every game its own recorder, or reuse one per thread with start.
+ */
+
+public class ReplayRecorder {
+    private byte[] moves = new byte[256];
+    private int moveCount;
+    private long seed;
+    private int startTiles;
+
+    /**
+     * Forgets any recorded moves and starts a new game
+     *
+     * @param gameSeed the seed of the game's SplittableRandomSource
+     */
+    public void start(long gameSeed) {
+        seed = gameSeed;
+        moveCount = 0;
+        startTiles = 0;
+    }
+
+    /**
+     * Notes a random tile added before the first move
+     */
+    public void recordStartTile() {
+        startTiles++;
+    }
+
+    /**
+     * Notes a move that changed the board
+     *
+     * @param direction the direction the board was slid in
+     */
+    public void record(Direction direction) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = (byte) direction.ordinal();
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * @param game the game the moves were made on, for its size and points
+     * @return the recorded game
+     */
+    public GameReplay toReplay(GameEngine game) {
+        return new GameReplay(seed, game.getWidth(), game.getHeight(), startTiles, game.getPoints(),
+                Arrays.copyOf(moves, moveCount));
+    }
+}
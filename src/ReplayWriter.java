@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Appends finished games to a replay archive on a background thread.
+ *
+ * - submit only queues the game, so the game loop and the simulation workers never wait on the disk
+ *   unless the queue is full
+ * - The writer thread takes whatever has queued up and writes it with one channel write
+ * - An archive starts with MAGIC and VERSION, then holds GameReplay records back to back
+ * - Opening an archive cuts off anything after its last whole record, e.g. half a record
+ *   left by a crash, so the games appended afterwards can still be read
+ *
+ * The GUI shares one archive, replays.bin, through archive().
+ */
+
+public class ReplayWriter implements AutoCloseable {
+    public static final int MAGIC = 0x32303438; // "2048"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 8;
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final GameReplay END = new GameReplay(0L, 0, 0, 0, 0, new byte[0]);
+
+    private static ReplayWriter archive;
+
+    private final FileChannel channel;
+    private final BlockingQueue<GameReplay> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private volatile boolean closed;
+
+    /**
+     * Opens an archive for appending, creating it if it does not exist, and
+     * truncates it after its last whole record
+     *
+     * @param path the archive file
+     * @throws IOException if the file cannot be opened or is not a replay archive
+     */
+    public ReplayWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException(path + " is not a replay archive");
+            }
+        }
+        long end = endOfLastRecord(channel);
+        if (end < channel.size()) {
+            channel.truncate(end);
+        }
+        channel.position(end);
+        writerThread = new Thread(this::drain, "replay-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Walks the record headers of an archive the way ReplayReader does
+     *
+     * @param channel an archive with a valid file header
+     * @return the offset just after the last whole record
+     * @throws IOException if the file cannot be read
+     */
+    private static long endOfLastRecord(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        long end = FILE_HEADER_BYTES;
+        while (end + GameReplay.HEADER_BYTES <= size) {
+            chunk.clear();
+            while (chunk.hasRemaining() && channel.read(chunk, end + chunk.position()) > 0) {
+                // read until the chunk is full or the file ends
+            }
+            long offset = 0;
+            while (offset + GameReplay.HEADER_BYTES <= chunk.position()) {
+                long record = GameReplay.recordSize(chunk, (int) offset);
+                if (record < 0 || end + offset + record > size) {
+                    return end + offset;
+                }
+                offset += record;
+            }
+            end += offset;
+        }
+        return end;
+    }
+
+    /**
+     * The archive the GUI records its games in, opened on first use and
+     * flushed when the program exits
+     *
+     * @return the shared archive, or null if it could not be opened
+     */
+    public static synchronized ReplayWriter archive() {
+        if (archive == null) {
+            try {
+                archive = new ReplayWriter(Paths.get("replays.bin"));
+                ReplayWriter opened = archive;
+                Runtime.getRuntime().addShutdownHook(new Thread(opened::close, "replay-writer-shutdown"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Queues a game to be appended to the archive, waiting only if the queue is full
+     *
+     * @param replay the game to append
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public void submit(GameReplay replay) {
+        if (closed) {
+            throw new IllegalStateException("The replay writer is closed");
+        }
+        try {
+            queue.put(replay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes everything that was submitted, then closes the file
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void drain() {
+        List<GameReplay> batch = new ArrayList<>();
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (GameReplay replay : batch) {
+                if (replay == END) {
+                    done = true;
+                } else {
+                    append(replay);
+                }
+            }
+            batch.clear();
+            flush();
+        }
+    }
+
+    private void append(GameReplay replay) {
+        if (buffer.remaining() < replay.encodedSize()) {
+            flush();
+            if (buffer.capacity() < replay.encodedSize()) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(replay.encodedSize()) * 2);
+            }
+        }
+        replay.writeTo(buffer);
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Plays many games headlessly with a move policy and reports how fast and how well it played.
+ *
+ * - Games are spread over worker threads, each with its own policy instance
+ * - Every finished game is written to the CSV as soon as it ends, with the seed
+ *   its tiles were drawn from, so it can be replayed exactly
+ * - With --replays every game is also appended to a replay archive (see ReplayReader)
+ * - Only touches engine and policy classes, never AWT or Swing
+ *
+ * Usage:
+ *   java -cp bin SimulationRunner --games 100000 --policy random --engine bitboard
+ *        --size 4x4 --threads 8 --csv results.csv --replays games.bin
+ *
+ * Policies: random, montecarlo, expectimax. Engines: grid, bitboard, packed, array.
+ */
+
+public class SimulationRunner {
+    private final int games;
+    private final String policyName;
+    private final EngineType engineType;
+    private final int width;
+    private final int height;
+    private final int threads;
+    private final int playouts;
+    private final long thinkMillis;
+    private final SplittableRandomSource seeds;
+    private final long[] gameSeeds;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicLong totalMoves = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+    private final AtomicLongArray maxTiles = new AtomicLongArray(32);
+    private final int[] scores;
+    private Writer csv;
+    private ReplayWriter replays;
+
+    /**
+     * @param options the parsed command line, see the class comment
+     */
+    public SimulationRunner(Map<String, String> options) {
+        games = Integer.parseInt(options.getOrDefault("games", "1000"));
+        policyName = options.getOrDefault("policy", "random");
+        engineType = EngineType.valueOf(options.getOrDefault("engine", "bitboard").toUpperCase());
+        String[] size = options.getOrDefault("size", "4x4").split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        playouts = Integer.parseInt(options.getOrDefault("playouts", "100"));
+        thinkMillis = Long.parseLong(options.getOrDefault("think", "10"));
+        SplittableRandom random = options.containsKey("seed")
+                ? new SplittableRandom(Long.parseLong(options.get("seed")))
+                : new SplittableRandom();
+        gameSeeds = new long[games];
+        for (int game = 0; game < games; game++) {
+            gameSeeds[game] = random.nextLong();
+        }
+        seeds = new SplittableRandomSource(random.nextLong());
+        scores = new int[games];
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        SimulationRunner runner = new SimulationRunner(options);
+        String csvPath = options.get("csv");
+        Writer out = csvPath == null ? null : new BufferedWriter(new FileWriter(csvPath), 1 << 16);
+        String replayPath = options.get("replays");
+        ReplayWriter replayArchive = replayPath == null ? null : new ReplayWriter(Paths.get(replayPath));
+        runner.run(out, replayArchive);
+        if (out != null) {
+            out.close();
+        }
+        if (replayArchive != null) {
+            replayArchive.close();
+        }
+    }
+
+    /**
+     * Plays all the games and prints a summary to standard output.
+     *
+     * @param out where to stream one CSV line per game, or null for no CSV
+     */
+    public void run(Writer out) throws IOException, InterruptedException {
+        run(out, null);
+    }
+
+    /**
+     * Plays all the games and prints a summary to standard output.
+     *
+     * @param out           where to stream one CSV line per game, or null for no CSV
+     * @param replayArchive where to append every game, or null to not keep replays
+     */
+    public void run(Writer out, ReplayWriter replayArchive) throws IOException, InterruptedException {
+        csv = out;
+        replays = replayArchive;
+        if (csv != null) {
+            csv.write("game,seed,score,moves,max_tile,won,millis\n");
+        }
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            MovePolicy policy = createPolicy(seeds.split());
+            workers[t] = new Thread(() -> work(policy), "simulation-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (csv != null) {
+            csv.flush();
+        }
+        printSummary(seconds);
+    }
+
+    private MovePolicy createPolicy(SplittableRandomSource random) {
+        switch (policyName) {
+            case "random":
+                return new RandomPolicy(random);
+            case "montecarlo":
+                return new MonteCarloPlayer(ForkJoinPool.commonPool(), playouts, random);
+            case "expectimax":
+                return new ExpectimaxAI(thinkMillis, 8);
+            default:
+                throw new IllegalArgumentException("Unknown policy " + policyName);
+        }
+    }
+
+    private void work(MovePolicy policy) {
+        ReplayRecorder recorder = new ReplayRecorder();
+        int game;
+        while ((game = nextGame.getAndIncrement()) < games) {
+            long started = System.nanoTime();
+            GameEngine engine = engineType.create(width, height, new SplittableRandomSource(gameSeeds[game]));
+            recorder.start(gameSeeds[game]);
+            engine.addRandom();
+            engine.addRandom();
+            recorder.recordStartTile();
+            recorder.recordStartTile();
+            int moves = 0;
+            Direction direction;
+            while (!engine.isOver() && (direction = policy.bestMove(engine)) != null) {
+                engine.slide(direction);
+                recorder.record(direction);
+                moves++;
+            }
+            record(game, engine, moves, (System.nanoTime() - started) / 1_000_000L);
+            if (replays != null) {
+                replays.submit(recorder.toReplay(engine));
+            }
+        }
+    }
+
+    private void record(int game, GameEngine engine, int moves, long millis) {
+        int maxTile = engine.getMaxTile();
+        boolean won = maxTile >= 2048;
+        scores[game] = engine.getPoints();
+        totalMoves.addAndGet(moves);
+        maxTiles.incrementAndGet(Integer.numberOfTrailingZeros(Math.max(1, maxTile)));
+        if (won) {
+            wins.incrementAndGet();
+        }
+        if (csv != null) {
+            String line = game + "," + gameSeeds[game] + "," + engine.getPoints() + "," + moves + "," + maxTile + "," + won + "," + millis + "\n";
+            synchronized (this) {
+                try {
+                    csv.write(line);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void printSummary(double seconds) {
+        int[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%d games of %dx%d with %s on %s, %d threads, %.2f s%n",
+                games, width, height, policyName, engineType, threads, seconds);
+        System.out.printf("games/sec: %.1f   moves/sec: %.1f%n", games / seconds, totalMoves.get() / seconds);
+        System.out.printf("score p50: %d   p90: %d   p99: %d   max: %d%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        System.out.printf("win rate: %.2f%%%n", games == 0 ? 0.0 : 100.0 * wins.get() / games);
+        System.out.println("max tile distribution:");
+        for (int exponent = 0; exponent < maxTiles.length(); exponent++) {
+            long count = maxTiles.get(exponent);
+            if (count > 0) {
+                System.out.printf("  %6d: %d (%.2f%%)%n", 1 << exponent, count, 100.0 * count / games);
+            }
+        }
+    }
+
+    private static int percentile(int[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Every sound effect under audio/, decoded once and played from reusable clips.
+ *
+ * - A loader thread decodes each WAV to PCM when the bank is first used and opens one clip for it,
+ *   so a keypress never touches the disk or opens a line
+ * - Each effect keeps up to its voice limit of clips, all opened on the same PCM; playing an effect
+ *   rewinds an idle clip, opens one more if none is idle, and restarts the oldest once the limit is reached;
+ *   no effect gets more than MAX_VOICES
+ * - Files longer than MAX_EFFECT_SECONDS are music and are left out
+ * - Effects asked for before they are loaded, or on a machine without an audio device,
+ *   are skipped rather than waited for
+ *
+ * Effects are named by their path under audio/, e.g. "sound.wav".
+ */
+
+public final class SoundBank {
+    public static final String MOVE = "NES - Donkey Kong - Sound Effects/Donkey Kong SFX (2).wav";
+    public static final String NEW_GAME = "NES - Donkey Kong - Sound Effects/Donkey Kong SFX (4).wav";
+    private static final Path AUDIO_DIRECTORY = Paths.get("audio");
+    private static final int MAX_EFFECT_SECONDS = 10;
+    private static final int DEFAULT_VOICES = 2;
+    private static final int MAX_VOICES = 8;
+
+    private final Map<String, Effect> effects = new ConcurrentHashMap<>();
+    private final Map<String, Integer> voiceLimits = new ConcurrentHashMap<>();
+    // set when there is no audio device, so play stops trying to open lines
+    private volatile boolean silent;
+
+    private static final class Holder {
+        static final SoundBank INSTANCE = new SoundBank(AUDIO_DIRECTORY);
+    }
+
+    private SoundBank(Path directory) {
+        voiceLimits.put(MOVE, 4);
+        Thread loader = new Thread(() -> loadAll(directory), "sound-bank-loader");
+        loader.setDaemon(true);
+        loader.setPriority(Thread.MIN_PRIORITY);
+        loader.start();
+    }
+
+    /**
+     * @return the shared bank; the first call starts loading it in the background
+     */
+    public static SoundBank get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Plays an effect from the start
+     *
+     * @param name the effect's path under audio/
+     */
+    public void play(String name) {
+        Effect effect = effects.get(name);
+        if (effect != null && !silent) {
+            effect.play();
+        }
+    }
+
+    /**
+     * Sets how many copies of an effect can sound at once
+     *
+     * @param name   the effect's path under audio/
+     * @param voices the most clips the effect may use, at least 1
+     */
+    public void setVoiceLimit(String name, int voices) {
+        voiceLimits.put(name, Math.max(1, voices));
+        Effect effect = effects.get(name);
+        if (effect != null) {
+            effect.voiceLimit = Math.max(1, voices);
+        }
+    }
+
+    /**
+     * Sets the gain of an effect
+     *
+     * @param name   the effect's path under audio/
+     * @param volume the gain in decibels, -80.0 (mute) to 6.0 (max)
+     */
+    public void setVolume(String name, float volume) {
+        Effect effect = effects.get(name);
+        if (effect != null) {
+            effect.setVolume(volume);
+        }
+    }
+
+    private void loadAll(Path directory) {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(path -> path.toString().toLowerCase().endsWith(".wav")).collect(Collectors.toList());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (Path file : files) {
+            String name = directory.relativize(file).toString().replace('\\', '/');
+            Effect effect;
+            try {
+                effect = decode(file);
+            } catch (IOException | UnsupportedAudioFileException e) {
+                e.printStackTrace();
+                continue;
+            }
+            if (effect == null) {
+                continue;
+            }
+            effect.voiceLimit = voiceLimits.getOrDefault(name, DEFAULT_VOICES);
+            if (!silent) {
+                try {
+                    effect.addVoice();
+                } catch (LineUnavailableException e) {
+                    e.printStackTrace(); // busy right now; play opens the clip later
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace();
+                    silent = true;
+                }
+            }
+            effects.put(name, effect);
+        }
+    }
+
+    /**
+     * Reads a file into 16-bit PCM
+     *
+     * @return the effect, or null if the file is too long to be an effect
+     */
+    private static Effect decode(Path file) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(file.toFile())) {
+            AudioFormat format = source.getFormat();
+            AudioInputStream pcm = source;
+            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                    && format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+                format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                        format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+                pcm = AudioSystem.getAudioInputStream(format, source);
+            }
+            long frames = pcm.getFrameLength();
+            if (frames != AudioSystem.NOT_SPECIFIED && frames > MAX_EFFECT_SECONDS * (long) format.getFrameRate()) {
+                return null;
+            }
+            byte[] data = pcm.readAllBytes();
+            if (data.length > MAX_EFFECT_SECONDS * (long) format.getFrameRate() * format.getFrameSize()) {
+                return null;
+            }
+            return new Effect(format, data);
+        }
+    }
+
+    /**
+     * The PCM of one effect and the clips playing it
+     */
+    private static final class Effect {
+        private final AudioFormat format;
+        private final byte[] data;
+        private final Clip[] voices = new Clip[MAX_VOICES];
+        private final long[] startedAt = new long[voices.length];
+        private int voiceCount;
+        private float volume = Float.NaN;
+        volatile int voiceLimit = DEFAULT_VOICES;
+
+        Effect(AudioFormat format, byte[] data) {
+            this.format = format;
+            this.data = data;
+        }
+
+        synchronized void play() {
+            int chosen = -1;
+            for (int i = 0; i < voiceCount; i++) {
+                if (!voices[i].isRunning()) {
+                    chosen = i;
+                    break;
+                }
+            }
+            if (chosen < 0 && voiceCount < Math.min(voiceLimit, MAX_VOICES)) {
+                try {
+                    chosen = addVoice();
+                } catch (LineUnavailableException | IllegalArgumentException e) {
+                    // every line is busy; fall through and reuse one of ours
+                }
+            }
+            if (chosen < 0) {
+                if (voiceCount == 0) {
+                    return;
+                }
+                chosen = 0;
+                for (int i = 1; i < voiceCount; i++) {
+                    if (startedAt[i] < startedAt[chosen]) {
+                        chosen = i;
+                    }
+                }
+            }
+            Clip clip = voices[chosen];
+            clip.stop();
+            clip.setFramePosition(0);
+            clip.start();
+            startedAt[chosen] = System.nanoTime();
+        }
+
+        /**
+         * Opens one more clip on this effect's PCM
+         *
+         * @return the index of the new clip
+         */
+        synchronized int addVoice() throws LineUnavailableException {
+            Clip clip = AudioSystem.getClip();
+            clip.open(format, data, 0, data.length);
+            if (!Float.isNaN(volume)) {
+                applyVolume(clip, volume);
+            }
+            voices[voiceCount] = clip;
+            return voiceCount++;
+        }
+
+        synchronized void setVolume(float volume) {
+            this.volume = volume;
+            for (int i = 0; i < voiceCount; i++) {
+                applyVolume(voices[i], volume);
+            }
+        }
+
+        private static void applyVolume(Clip clip, float volume) {
+            if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+                FloatControl control = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+                control.setValue(Math.max(control.getMinimum(), Math.min(control.getMaximum(), volume)));
+            }
+        }
+    }
+}
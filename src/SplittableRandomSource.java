@@ -0,0 +1,54 @@
+import java.util.SplittableRandom;
+
+/**
+ * A RandomSource backed by a SplittableRandom, remembering the seed it started from
+ * so a game can be replayed from its seed and its moves.
+ *
+ * Not thread safe: give every game or task its own instance, e.g. through split().
+ */
+
+public class SplittableRandomSource implements RandomSource {
+    private final long seed;
+    private final SplittableRandom random;
+
+    /**
+     * Create a source with a fresh random seed
+     */
+    public SplittableRandomSource() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @param seed the seed to start from
+     */
+    public SplittableRandomSource(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    /**
+     * @return the seed this source started from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Creates a new independent source whose seed is drawn from this one
+     *
+     * @return the new source
+     */
+    public SplittableRandomSource split() {
+        return new SplittableRandomSource(random.nextLong());
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The cell of every tile on a Grid, keyed by tile id, without boxing.
+ *
+ * An open-addressing table with linear probing. Each slot holds two ints: the
+ * tile id plus one (0 marks a free slot) and the cell index, row * width + col.
+ * A board never holds more tiles than it has cells, so the table is sized once
+ * to at least twice that and never grows. Removal shifts later entries of the
+ * same probe run back, so lookups never need tombstones.
+ *
+ * Not thread safe: each Grid creates its own instance.
+ */
+
+final class TilePositions {
+    private final int[] slots;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * @param cells the number of cells on the board
+     */
+    TilePositions(int cells) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(cells, 2) * 2 - 1);
+        slots = new int[2 << bits];
+        mask = (1 << bits) - 1;
+        shift = 32 - bits;
+    }
+
+    private int home(int id) {
+        return (id * 0x9E3779B9) >>> shift;
+    }
+
+    private int find(int id) {
+        int key = id + 1;
+        for (int slot = home(id); ; slot = (slot + 1) & mask) {
+            int stored = slots[slot << 1];
+            if (stored == key || stored == 0) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @param id a tile id
+     * @return the cell of that tile, or -1 if it is not on the board
+     */
+    int get(int id) {
+        int slot = find(id) << 1;
+        return slots[slot] == 0 ? -1 : slots[slot + 1];
+    }
+
+    /**
+     * @param id   a tile id
+     * @param cell the cell the tile is now in
+     */
+    void put(int id, int cell) {
+        int slot = find(id) << 1;
+        slots[slot] = id + 1;
+        slots[slot + 1] = cell;
+    }
+
+    /**
+     * @param id a tile id that is no longer on the board
+     */
+    void remove(int id) {
+        int free = find(id);
+        if (slots[free << 1] == 0) {
+            return;
+        }
+        for (int slot = (free + 1) & mask; slots[slot << 1] != 0; slot = (slot + 1) & mask) {
+            int home = home(slots[slot << 1] - 1);
+            // move the entry back if the freed slot lies on its probe run from home to slot
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                slots[free << 1] = slots[slot << 1];
+                slots[(free << 1) + 1] = slots[(slot << 1) + 1];
+                free = slot;
+            }
+        }
+        slots[free << 1] = 0;
+    }
+}
@@ -0,0 +1,92 @@
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-rendered images of tiles and empty boards for BoardCanvas.
+ *
+ * - A tile is drawn once per value, size and display scale, text included, and blitted after that
+ * - The background of a board size is one image with every empty cell already on it
+ * - Images are made at the display's pixel scale so they stay sharp on high-DPI screens
+ *
+ * Only used on the event dispatch thread, so the caches are plain maps.
+ */
+
+final class TileSprites {
+    static final int TILE_PADDING = 5;
+    static final int CELL_PADDING = 7;
+    private static final int ARC = 15;
+
+    private static final Map<Long, BufferedImage> tiles = new HashMap<>();
+    private static final Map<Long, BufferedImage> backgrounds = new HashMap<>();
+
+    private TileSprites() {
+    }
+
+    /**
+     * @param value a tile value
+     * @param size  the tile's size in pixels, padding excluded
+     * @param scale the display's pixels per pixel
+     * @return the image of the tile, size * scale pixels square
+     */
+    static BufferedImage tile(int value, int size, double scale) {
+        return tiles.computeIfAbsent((long) value << 32 | key(size, scale), key -> {
+            BufferedImage image = newImage(size, size, scale);
+            Graphics2D g = begin(image, scale);
+            g.setColor(Colors.forValue(value));
+            g.fillRoundRect(0, 0, size, size, ARC, ARC);
+            g.setFont(TileGUI.FONT);
+            g.setColor(Colors.TILE_TEXT);
+            FontMetrics metrics = g.getFontMetrics();
+            String text = String.valueOf(value);
+            g.drawString(text, (size - metrics.stringWidth(text)) / 2,
+                    (size - metrics.getHeight()) / 2 + metrics.getAscent());
+            g.dispose();
+            return image;
+        });
+    }
+
+    /**
+     * @param tileSize the size of a cell in pixels
+     * @param scale    the display's pixels per pixel
+     * @return the image of an empty board
+     */
+    static BufferedImage background(int width, int height, int tileSize, double scale) {
+        return backgrounds.computeIfAbsent((long) width << 48 | (long) height << 32 | key(tileSize, scale), key -> {
+            BufferedImage image = newImage(width * tileSize, height * tileSize, scale);
+            Graphics2D g = begin(image, scale);
+            g.setColor(Colors.BOARD);
+            g.fillRect(0, 0, width * tileSize, height * tileSize);
+            g.setColor(Colors.EMPTY_CELL);
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    g.fillRoundRect(j * tileSize + CELL_PADDING, i * tileSize + CELL_PADDING,
+                            tileSize - 2 * CELL_PADDING, tileSize - 2 * CELL_PADDING, ARC, ARC);
+                }
+            }
+            g.dispose();
+            return image;
+        });
+    }
+
+    // the size in the high bits, the scale in sixteenths in the low byte
+    private static long key(int size, double scale) {
+        return (long) size << 8 | Math.round(scale * 16) & 0xFF;
+    }
+
+    private static BufferedImage newImage(int width, int height, double scale) {
+        return new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private static Graphics2D begin(BufferedImage image, double scale) {
+        Graphics2D g = image.createGraphics();
+        g.scale(scale, scale);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        return g;
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * How much MoveTrace records about each move.
+ *
+ * - OFF: nothing; engines skip all trace work after one field read
+ * - MOVES: direction, score delta, total points and the spawned tile
+ * - BOARDS: everything in MOVES plus the board before and after the move
+ */
+
+public enum TraceLevel {
+    OFF, MOVES, BOARDS
+}
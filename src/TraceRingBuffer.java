@@ -0,0 +1,92 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free ring of MoveRecord slots with many producers and one consumer.
+ *
+ * - Producers claim a sequence number with a CAS, fill the slot and publish it
+ * - The consumer reads slots in sequence order and releases them once written out
+ * - When the ring is full the event is dropped and counted, so a game thread never waits on the writer
+ */
+
+final class TraceRingBuffer {
+    private final MoveRecord[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    TraceRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new MoveRecord[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new MoveRecord();
+            published.set(i, -1L);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Claims the next free slot for a producer.
+     *
+     * @return the slot to fill, or null if the ring is full and the event was dropped
+     */
+    MoveRecord claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return null;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                MoveRecord record = slots[(int) sequence & mask];
+                record.sequence = sequence;
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Makes a filled slot visible to the consumer.
+     *
+     * @param record a slot returned by claim
+     */
+    void publish(MoveRecord record) {
+        published.set((int) record.sequence & mask, record.sequence);
+    }
+
+    /**
+     * Returns the next record in sequence if its producer has published it.
+     * Only the consumer thread may call this.
+     *
+     * @return the next record, or null if it is not ready yet
+     */
+    MoveRecord peek() {
+        long sequence = consumed;
+        int index = (int) sequence & mask;
+        if (published.get(index) != sequence) {
+            return null;
+        }
+        return slots[index];
+    }
+
+    /**
+     * Hands the slot returned by the last peek back to the producers.
+     * Only the consumer thread may call this.
+     */
+    void release() {
+        consumed = consumed + 1;
+    }
+
+    /**
+     * @return the number of events dropped because the ring was full
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+}
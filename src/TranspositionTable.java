@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free cache of expectimax chance-node values keyed by packed 4x4 board.
+ *
+ * Each slot holds two longs: the entry (search depth and float value) and the
+ * board xor-ed with the entry. A reader only trusts a slot if un-xoring gives back
+ * its board, so two threads writing the same slot at once can never produce a
+ * wrong hit, only a miss. Collisions simply replace the older entry.
+ */
+
+final class TranspositionTable {
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * @param bits log2 of the number of entries
+     */
+    TranspositionTable(int bits) {
+        slots = new AtomicLongArray(2 << bits);
+        mask = (1 << bits) - 1;
+    }
+
+    private int index(long board) {
+        return ((int) ((board * 0x9E3779B97F4A7C15L) >>> 40) & mask) << 1;
+    }
+
+    /**
+     * @param board the packed board of a chance node
+     * @param depth the depth the caller wants to search it to
+     * @return the cached value if one was stored for at least that depth, otherwise NaN
+     */
+    float get(long board, int depth) {
+        int index = index(board);
+        long entry = slots.get(index);
+        long check = slots.get(index + 1);
+        if ((check ^ entry) != board || entry == 0L) {
+            return Float.NaN;
+        }
+        if ((int) (entry >>> 32) < depth) {
+            return Float.NaN;
+        }
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    /**
+     * @param board the packed board of a chance node
+     * @param depth the depth it was searched to
+     * @param value its expected score
+     */
+    void put(long board, int depth, float value) {
+        int index = index(board);
+        long entry = ((long) depth << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+        slots.set(index, entry);
+        slots.set(index + 1, board ^ entry);
+    }
+
+    /**
+     * Forgets every entry.
+     */
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0L);
+        }
+    }
+}